@@ -0,0 +1,138 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import marytts.language.hi.JPhonemiser;
+import marytts.server.Mary;
+
+/**
+ * Word lists and setup shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    static final String UTF8TOIT3_MAP = "/marytts/language/hi/lexicon/UTF8toIT3.hi.list";
+
+    /** Frequent one- and two-akshara function words. */
+    static final String[] SHORT_WORDS = { "है", "के", "की", "में", "और", "का", "को", "से", "पर", "भी", "ने", "तो" };
+
+    /** Long compounds and derived words. */
+    static final String[] LONG_WORDS = { "प्रधानमंत्री", "विश्वविद्यालय", "अंतरराष्ट्रीय", "प्रौद्योगिकी",
+            "अर्थव्यवस्था", "दर्शनशास्त्र", "महाविद्यालय", "स्वतंत्रता", "जीवविज्ञान", "समाजशास्त्र" };
+
+    /** Words with several halant conjuncts. */
+    static final String[] CONJUNCT_WORDS = { "स्त्री", "क्षेत्र", "ज्ञान", "द्वार", "श्रीमती", "राष्ट्रीय",
+            "संस्कृत", "वृक्ष", "स्वास्थ्य", "व्यक्तिगत" };
+
+    private BenchmarkData() {
+    }
+
+    static String[] words(String kind) {
+        if ("short".equals(kind)) {
+            return SHORT_WORDS;
+        } else if ("long".equals(kind)) {
+            return LONG_WORDS;
+        } else if ("conjunct".equals(kind)) {
+            return CONJUNCT_WORDS;
+        }
+        throw new IllegalArgumentException("Unknown word kind: " + kind);
+    }
+
+    /**
+     * About 800 frequent Hindi words, one per line.
+     */
+    static List<String> corpusWords() throws IOException {
+        InputStream in = BenchmarkData.class.getResourceAsStream("words.hi.txt");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        List<String> words = new ArrayList<String>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0) {
+                    words.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return words;
+    }
+
+    /**
+     * A MaryXML PARTSOFSPEECH document with the given number of tokens,
+     * cycling through the corpus words, with a danda closing every sentence.
+     */
+    static String partsOfSpeechDocument(List<String> words, int tokens) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<maryxml xmlns=\"http://mary.dfki.de/2002/MaryXML\" version=\"0.5\" xml:lang=\"hi\"><p><s>");
+        for (int i = 0; i < tokens; i++) {
+            if (i % 12 == 11) {
+                xml.append("<t pos=\"$PUNCT\">।</t></s><s>");
+            } else {
+                xml.append("<t pos=\"NN\">").append(words.get(i % words.size())).append("</t>");
+            }
+        }
+        xml.append("</s></p></maryxml>");
+        return xml.toString();
+    }
+
+    /**
+     * Start the MARY server in this JVM, so that modules can read their
+     * configuration; does nothing if it is already running.
+     */
+    static synchronized void startMary() throws Exception {
+        if (Mary.currentState() == Mary.STATE_OFF) {
+            Mary.startup();
+        }
+    }
+
+    /**
+     * A JPhonemiser configured from hi.config, with access to the parts
+     * the benchmarks vary.
+     */
+    static class Phonemiser extends JPhonemiser {
+        Phonemiser(boolean cached) throws Exception {
+            super("hi.");
+            // hi.config loads the dictionaries in the background; wait for
+            // them, so that the loader cannot replace what a benchmark sets up
+            if (!awaitReady(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Dictionaries did not load within a minute");
+            }
+            if (!cached) {
+                cache = null;
+            }
+        }
+
+        void useUserdict(Map<String, List<String>> dict) {
+            setUserdict(dict);
+        }
+    }
+}
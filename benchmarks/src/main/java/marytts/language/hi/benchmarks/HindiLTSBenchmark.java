@@ -0,0 +1,85 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import marytts.language.hi.phonemiser.HindiLTS;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Letter-to-sound rules on their own: {@link HindiLTS#phonemise(String)}
+ * over a fixed set of short, long or conjunct-heavy words.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HindiLTSBenchmark {
+
+    @Param({ "short", "long", "conjunct" })
+    public String kind;
+
+    private HindiLTS lts;
+    private String[] words;
+
+    @Setup
+    public void setUp() throws Exception {
+        lts = new HindiLTS(HindiLTS.class.getResourceAsStream(BenchmarkData.UTF8TOIT3_MAP));
+        words = BenchmarkData.words(kind);
+    }
+
+    /**
+     * One operation phonemises every word of the set once.
+     */
+    @Benchmark
+    public void phonemise(Blackhole bh) throws Exception {
+        for (String word : words) {
+            bh.consume(lts.phonemise(word));
+        }
+    }
+
+    /**
+     * The same, with four threads sharing one HindiLTS.
+     */
+    @Benchmark
+    @Threads(4)
+    public void phonemiseShared(Blackhole bh) throws Exception {
+        for (String word : words) {
+            bh.consume(lts.phonemise(word));
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package marytts.language.hi.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import marytts.datatypes.MaryData;
+import marytts.datatypes.MaryDataType;
+import marytts.datatypes.MaryXML;
+import marytts.modules.MaryModule;
+import marytts.modules.ModuleRegistry;
+import marytts.server.Mary;
+import marytts.util.dom.MaryDomUtils;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.traversal.NodeIterator;
+
+/**
+ * Load test of the Hindi pipeline from text to phonemes, as configured
+ * in hi.config (tokeniser, preprocessing, phonemiser), with many
+ * clients sending sentences at once.
+ *
+ * Every sentence is first run once in the calling thread; this warms
+ * up the modules and gives the reference transcriptions. Then each
+ * client runs through all sentences the given number of rounds, each
+ * client starting at a different sentence, and every result is checked
+ * against the reference. A difference points to state shared between
+ * threads. The report gives the throughput and, for each module and
+ * for the whole pipeline, the 50th, 95th, 99th and 99.9th percentiles
+ * of the latency.
+ *
+ * Usage: <code>java -cp target/benchmarks.jar marytts.language.hi.benchmarks.LoadTest
+ * [-clients n] [-rounds n] [-virtual] [sentences.txt]</code>
+ * <br>
+ * The sentences file has one sentence per line; by default, sentences
+ * of twelve words are made from the benchmark word list. With -virtual,
+ * each client runs on a virtual thread, which needs Java 21.
+ */
+public class LoadTest {
+
+    private static final Locale HINDI = new Locale("hi");
+    /** Differences shown in full in the report */
+    private static final int SHOWN_DIFFERENCES = 10;
+
+    private final List<MaryModule> stages;
+    private final List<String> sentences;
+    private final String[] reference;
+
+    /**
+     * @param stages the modules to run, in order
+     * @param sentences
+     */
+    public LoadTest(List<MaryModule> stages, List<String> sentences) {
+        this.stages = stages;
+        this.sentences = sentences;
+        reference = new String[sentences.size()];
+    }
+
+    /**
+     * Run every sentence once in this thread, and remember its transcription.
+     * @throws Exception
+     */
+    public void prepare() throws Exception {
+        long[] ignored = new long[stages.size() + 1];
+        for (int i = 0; i < reference.length; i++) {
+            reference[i] = transcribe(sentences.get(i), ignored);
+        }
+    }
+
+    /**
+     * Run the clients.
+     * @param clients the number of clients
+     * @param rounds how often each client runs through all sentences
+     * @param virtual whether to run each client on a virtual thread
+     * @return the report
+     * @throws Exception if a module fails
+     */
+    public Report run(int clients, final int rounds, boolean virtual) throws Exception {
+        final int requests = rounds * sentences.size();
+        final long[][][] latencies = new long[clients][stages.size() + 1][requests];
+        final AtomicInteger differenceCount = new AtomicInteger();
+        final List<String> differences = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = virtual ? newVirtualThreadPool() : Executors.newFixedThreadPool(clients);
+        List<Future<?>> futures = new ArrayList<Future<?>>(clients);
+        try {
+            for (int c = 0; c < clients; c++) {
+                final long[][] own = latencies[c];
+                final int offset = (int) ((long) sentences.size() * c / clients);
+                futures.add(pool.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        long[] times = new long[stages.size() + 1];
+                        go.await();
+                        for (int r = 0; r < requests; r++) {
+                            int i = (offset + r) % sentences.size();
+                            String result = transcribe(sentences.get(i), times);
+                            for (int s = 0; s < times.length; s++) {
+                                own[s][r] = times[s];
+                            }
+                            if (!reference[i].equals(result) && differenceCount.incrementAndGet() <= SHOWN_DIFFERENCES) {
+                                differences.add(sentences.get(i) + "\nexpected " + reference[i] + "\nactual   " + result);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            long start = System.nanoTime();
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long nanos = System.nanoTime() - start;
+            return new Report(clients, (long) clients * requests, nanos, latencies, differenceCount.get(), differences);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run one sentence through the stages.
+     * @param times receives the nanoseconds spent in each stage, and in all of them last
+     * @return the transcriptions of the tokens
+     */
+    private String transcribe(String sentence, long[] times) throws Exception {
+        MaryData data = new MaryData(MaryDataType.TEXT, HINDI);
+        data.setData(sentence);
+        long total = 0;
+        for (int s = 0; s < stages.size(); s++) {
+            long start = System.nanoTime();
+            data = stages.get(s).process(data);
+            times[s] = System.nanoTime() - start;
+            total += times[s];
+        }
+        times[stages.size()] = total;
+        StringBuilder out = new StringBuilder();
+        NodeIterator it = MaryDomUtils.createNodeIterator(data.getDocument(), data.getDocument(), MaryXML.TOKEN);
+        Element t;
+        while ((t = (Element) it.nextNode()) != null) {
+            out.append(MaryDomUtils.tokenText(t)).append('/').append(t.getAttribute("ph")).append(' ');
+        }
+        return out.toString();
+    }
+
+    private static ExecutorService newVirtualThreadPool() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21", e);
+        }
+    }
+
+    /**
+     * The outcome of {@link LoadTest#run(int, int, boolean)}.
+     */
+    public class Report {
+        private final int clients;
+        private final long requests;
+        private final long nanos;
+        private final long[][] latencies;
+        private final int differenceCount;
+        private final List<String> differences;
+
+        Report(int clients, long requests, long nanos, long[][][] perClient, int differenceCount, List<String> differences) {
+            this.clients = clients;
+            this.requests = requests;
+            this.nanos = nanos;
+            this.differenceCount = differenceCount;
+            this.differences = differences;
+            // all clients together, sorted, per stage
+            latencies = new long[stages.size() + 1][];
+            for (int s = 0; s < latencies.length; s++) {
+                latencies[s] = new long[(int) requests];
+                int n = 0;
+                for (long[][] own : perClient) {
+                    System.arraycopy(own[s], 0, latencies[s], n, own[s].length);
+                    n += own[s].length;
+                }
+                Arrays.sort(latencies[s]);
+            }
+        }
+
+        public double getSentencesPerSecond() {
+            return nanos > 0 ? requests * 1e9 / nanos : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * @param stage the number of the stage, or the number of stages for the whole pipeline
+         * @param percentile between 0 and 100
+         * @return the latency in microseconds
+         */
+        public double getPercentileMicros(int stage, double percentile) {
+            long[] sorted = latencies[stage];
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1000.0;
+        }
+
+        /**
+         * @return the number of results that differ from the reference
+         */
+        public int getDifferenceCount() {
+            return differenceCount;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%d clients, %d sentences, %.0f sentences/s, %d differences%n",
+                    clients, requests, getSentencesPerSecond(), differenceCount));
+            out.append(String.format("%-40s %10s %10s %10s %10s%n", "latency (µs)", "p50", "p95", "p99", "p99.9"));
+            for (int s = 0; s <= stages.size(); s++) {
+                String name = s < stages.size() ? stages.get(s).name() : "pipeline";
+                out.append(String.format("%-40s %10.0f %10.0f %10.0f %10.0f%n", name,
+                        getPercentileMicros(s, 50), getPercentileMicros(s, 95),
+                        getPercentileMicros(s, 99), getPercentileMicros(s, 99.9)));
+            }
+            for (String difference : differences) {
+                out.append('\n').append(difference).append('\n');
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * Sentences of twelve words from the benchmark word list.
+     */
+    static List<String> defaultSentences() throws Exception {
+        List<String> words = BenchmarkData.corpusWords();
+        List<String> sentences = new ArrayList<String>();
+        for (int i = 0; i + 12 <= words.size(); i += 12) {
+            StringBuilder sentence = new StringBuilder();
+            for (String word : words.subList(i, i + 12)) {
+                sentence.append(word).append(' ');
+            }
+            sentences.add(sentence.append('।').toString());
+        }
+        return sentences;
+    }
+
+    static List<String> readSentences(String filename) throws Exception {
+        List<String> sentences = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(filename), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().length() > 0) {
+                    sentences.add(line.trim());
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return sentences;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 2 * Runtime.getRuntime().availableProcessors();
+        int rounds = 10;
+        boolean virtual = false;
+        String filename = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("-clients".equals(args[i]) && i + 1 < args.length) {
+                clients = Integer.parseInt(args[++i]);
+            } else if ("-rounds".equals(args[i]) && i + 1 < args.length) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if ("-virtual".equals(args[i])) {
+                virtual = true;
+            } else if (filename == null && !args[i].startsWith("-")) {
+                filename = args[i];
+            } else {
+                System.err.println("Usage: java " + LoadTest.class.getName()
+                        + " [-clients n] [-rounds n] [-virtual] [sentences.txt]");
+                System.exit(1);
+            }
+        }
+        BenchmarkData.startMary();
+        Report report;
+        try {
+            List<MaryModule> stages = ModuleRegistry.modulesRequiredForProcessing(MaryDataType.TEXT,
+                    MaryDataType.PHONEMES, HINDI);
+            if (stages == null) {
+                throw new IllegalStateException("No modules for Hindi from TEXT to PHONEMES; is marytts-lang-hi installed?");
+            }
+            LoadTest test = new LoadTest(stages, filename != null ? readSentences(filename) : defaultSentences());
+            test.prepare();
+            report = test.run(clients, rounds, virtual);
+        } finally {
+            Mary.shutdown();
+        }
+        new PrintStream(System.out, true, "UTF-8").println(report);
+        System.exit(report.getDifferenceCount() == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import marytts.datatypes.MaryData;
+import marytts.datatypes.MaryDataType;
+import marytts.util.dom.DomUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * The whole phonemiser module on MaryXML documents of 10, 1,000 and
+ * 50,000 tokens, with the transcription cache on or off.
+ *
+ * JPhonemiser skips tokens that already have a transcription, so every
+ * invocation works on a fresh copy of the input document. The
+ * {@link #copyOnly()} benchmark measures the copy alone.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessBenchmark {
+
+    private static final Locale HINDI = new Locale("hi");
+
+    @State(Scope.Benchmark)
+    public static class Module {
+        @Param({ "true", "false" })
+        public boolean cached;
+
+        BenchmarkData.Phonemiser phonemiser;
+
+        @Setup
+        public void setUp() throws Exception {
+            BenchmarkData.startMary();
+            phonemiser = new BenchmarkData.Phonemiser(cached);
+        }
+    }
+
+    /**
+     * The input document; per thread, since DOM trees may not be read
+     * concurrently.
+     */
+    @State(Scope.Thread)
+    public static class Input {
+        @Param({ "10", "1000", "50000" })
+        public int tokens;
+
+        Document template;
+
+        @Setup
+        public void setUp() throws Exception {
+            template = DomUtils.parseDocument(BenchmarkData.partsOfSpeechDocument(BenchmarkData.corpusWords(), tokens));
+        }
+
+        MaryData copy() {
+            MaryData data = new MaryData(MaryDataType.PARTSOFSPEECH, HINDI);
+            data.setDocument((Document) template.cloneNode(true));
+            return data;
+        }
+    }
+
+    @Benchmark
+    public MaryData process(Module module, Input input) throws Exception {
+        return module.phonemiser.process(input.copy());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MaryData processShared(Module module, Input input) throws Exception {
+        return module.phonemiser.process(input.copy());
+    }
+
+    @Benchmark
+    public MaryData copyOnly(Input input) {
+        return input.copy();
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import marytts.language.hi.JTokeniser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup of the tokeniser module, which loads and compiles the jtok
+ * resources. {@link #coldStartup()} is the first startup in a fresh JVM,
+ * as in a newly started worker; {@link #warmStartup()} starts further
+ * instances in a JVM that has already loaded the classes.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokeniserStartupBenchmark {
+
+    @Benchmark
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public JTokeniser coldStartup() throws Exception {
+        JTokeniser tokeniser = new JTokeniser();
+        tokeniser.startup();
+        return tokeniser;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    @Fork(1)
+    public JTokeniser warmStartup() throws Exception {
+        JTokeniser tokeniser = new JTokeniser();
+        tokeniser.startup();
+        return tokeniser;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import marytts.language.hi.CompiledUserdict;
+import marytts.language.hi.UserdictCompiler;
+import marytts.language.hi.phonemiser.HindiLTS;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link marytts.language.hi.JPhonemiser#userdictLookup(String, String)}
+ * against a userdict of the given size, held in memory or compiled and
+ * memory-mapped. Half of the queried words are in the userdict; the
+ * others miss and go through the case-folding retries.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserdictLookupBenchmark {
+
+    private static final String[] SUFFIXES = { "", "ों", "ें", "ी", "ा", "े", "ाएँ", "ियों", "वाला", "वाले" };
+
+    @Param({ "1000", "50000" })
+    public int entries;
+
+    @Param({ "text", "compiled" })
+    public String format;
+
+    private BenchmarkData.Phonemiser phonemiser;
+    private String[] queries;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkData.startMary();
+        HindiLTS lts = new HindiLTS(HindiLTS.class.getResourceAsStream(BenchmarkData.UTF8TOIT3_MAP));
+        List<String> words = BenchmarkData.corpusWords();
+
+        // corpus words with inflectional suffixes and numbered variants,
+        // transcribed by the rules, some with a part-of-speech
+        Map<String, List<String>> dict = new HashMap<String, List<String>>();
+        for (int i = 0; dict.size() < entries; i++) {
+            String word = words.get(i % words.size());
+            String suffix = SUFFIXES[(i / words.size()) % SUFFIXES.length];
+            int round = i / (words.size() * SUFFIXES.length);
+            String graph = round == 0 ? word + suffix : word + suffix + round;
+            String phones = lts.phonemise(word + suffix);
+            dict.put(graph, i % 5 == 0 ? Arrays.asList(phones + "|NN", phones + "|VM") : Arrays.asList(phones));
+        }
+        if ("compiled".equals(format)) {
+            File file = File.createTempFile("userdict-hi", ".bin");
+            file.deleteOnExit();
+            UserdictCompiler.compile(dict, file);
+            dict = CompiledUserdict.open(file);
+        }
+
+        phonemiser = new BenchmarkData.Phonemiser(false);
+        phonemiser.useUserdict(dict);
+
+        queries = new String[words.size()];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = i % 2 == 0 ? words.get(i) : words.get(i) + "ओं";
+        }
+    }
+
+    /**
+     * One operation looks up every query word once.
+     */
+    @Benchmark
+    public void lookup(Blackhole bh) {
+        for (String query : queries) {
+            bh.consume(phonemiser.userdictLookup(query, "NN"));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void lookupShared(Blackhole bh) {
+        for (String query : queries) {
+            bh.consume(phonemiser.userdictLookup(query, "NN"));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.util.Collection;
+
+/**
+ * A Bloom filter over strings, telling definite misses apart from
+ * possible hits without touching the set it was built from. With
+ * {@link #BITS_PER_KEY} bits per key and {@link #HASHES} probes, about
+ * one miss in a hundred is reported as a possible hit.
+ */
+final class BloomFilter {
+
+    static final int BITS_PER_KEY = 10;
+    static final int HASHES = 4;
+
+    private final long[] bits;
+    private final int mask;
+
+    /**
+     * @param keys the keys to add
+     */
+    BloomFilter(Collection<String> keys) {
+        int size = Integer.highestOneBit(Math.max(64, keys.size() * BITS_PER_KEY - 1)) << 1;
+        bits = new long[size >>> 6];
+        mask = size - 1;
+        for (String key : keys) {
+            int h1 = mix(key.hashCode());
+            int h2 = mix(h1) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * A filter as returned by {@link #toLongArray()}. String.hashCode()
+     * is fixed by the language specification, so the bits can be stored.
+     * @param bits the bits of the filter; their number is a power of two
+     */
+    BloomFilter(long[] bits) {
+        this.bits = bits;
+        mask = bits.length * 64 - 1;
+    }
+
+    /**
+     * @return the bits of the filter, not copied
+     */
+    long[] toLongArray() {
+        return bits;
+    }
+
+    /**
+     * @param key
+     * @return false if the key was certainly not added, true if it may have been
+     */
+    boolean mightContain(String key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The finaliser of MurmurHash3, to spread String.hashCode() over all bits.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only userdict backed by a memory-mapped file written by
+ * {@link UserdictCompiler}. The entries stay off the Java heap; a
+ * lookup is a binary search over blocks followed by a short scan.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * int magic, int version, int entryCount, int blockCount, int blockIndexOffset
+ * blocks: up to {@link #BLOCK_SIZE} entries each, keys sorted by their UTF-8 bytes
+ *   entry: varint sharedPrefix, varint suffixLength, suffix bytes,
+ *          varint valueCount, (varint length, value bytes)*
+ * block index: blockCount ints, the offset of each block
+ * key filter (since version 2): int longCount, longCount longs, the
+ *   bits of a {@link BloomFilter} over the keys
+ * </pre>
+ * Keys are front-coded against the previous key of the same block, so
+ * the first key of every block is stored in full. Values are the
+ * entries as returned by {@link #get(Object)}: "phones" or "phones|pos".
+ * Files of version 1, without the key filter, can still be read.
+ */
+public class CompiledUserdict extends AbstractMap<String, List<String>> {
+
+    static final int MAGIC = 0x48495544; // "HIUD"
+    static final int VERSION = 2;
+    static final int BLOCK_SIZE = 16;
+    static final int HEADER_SIZE = 20;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer data;
+    private final int entryCount;
+    private final int blockCount;
+    private final int blockIndexOffset;
+    /** the filter stored with the keys, or null for a version 1 file */
+    private final BloomFilter keyFilter;
+
+    private CompiledUserdict(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled userdict");
+        }
+        int version = data.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported compiled userdict version " + version);
+        }
+        entryCount = data.getInt(8);
+        blockCount = data.getInt(12);
+        blockIndexOffset = data.getInt(16);
+        long filterOffset = blockIndexOffset + 4L * blockCount;
+        if (filterOffset > data.capacity()) {
+            throw new IOException("Truncated compiled userdict");
+        }
+        if (version == 1) {
+            keyFilter = null;
+        } else {
+            if (filterOffset + 4 > data.capacity()) {
+                throw new IOException("Truncated compiled userdict");
+            }
+            int longCount = data.getInt((int) filterOffset);
+            if (Integer.bitCount(longCount) != 1 || filterOffset + 4 + 8L * longCount > data.capacity()) {
+                throw new IOException("Corrupt key filter in compiled userdict");
+            }
+            long[] bits = new long[longCount];
+            for (int i = 0; i < longCount; i++) {
+                bits[i] = data.getLong((int) filterOffset + 4 + 8 * i);
+            }
+            keyFilter = new BloomFilter(bits);
+        }
+    }
+
+    /**
+     * Memory-map a compiled userdict.
+     * @param file
+     * @return the userdict
+     * @throws IOException if the file cannot be read or is not a compiled userdict
+     */
+    public static CompiledUserdict open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // the mapping stays valid after the channel is closed
+            return new CompiledUserdict(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Override
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * @return the Bloom filter over the keys stored in the file, or null
+     * if the file has none
+     */
+    BloomFilter getKeyFilter() {
+        return keyFilter;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        if (!(key instanceof String) || blockCount == 0) {
+            return null;
+        }
+        byte[] query = ((String) key).getBytes(UTF8);
+        int block = findBlock(query);
+        if (block < 0) {
+            return null;
+        }
+        Cursor cursor = new Cursor(blockOffset(block), block);
+        for (int i = 0; i < BLOCK_SIZE && cursor.hasNext(); i++) {
+            cursor.readKey();
+            int cmp = compare(cursor.key, cursor.keyLength, query, query.length);
+            if (cmp == 0) {
+                return cursor.readValues();
+            }
+            if (cmp > 0) {
+                return null;
+            }
+            cursor.skipValues();
+        }
+        return null;
+    }
+
+    /**
+     * The keys, read without decoding the values.
+     */
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public int size() {
+                return entryCount;
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                final Cursor cursor = new Cursor(HEADER_SIZE, 0);
+                return new Iterator<String>() {
+                    public boolean hasNext() {
+                        return cursor.hasNext();
+                    }
+
+                    public String next() {
+                        if (!cursor.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        cursor.readKey();
+                        cursor.skipValues();
+                        return new String(cursor.key, 0, cursor.keyLength, UTF8);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Map.Entry<String, List<String>>>() {
+            @Override
+            public int size() {
+                return entryCount;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, List<String>>> iterator() {
+                final Cursor cursor = new Cursor(HEADER_SIZE, 0);
+                return new Iterator<Map.Entry<String, List<String>>>() {
+                    public boolean hasNext() {
+                        return cursor.hasNext();
+                    }
+
+                    public Map.Entry<String, List<String>> next() {
+                        if (!cursor.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        cursor.readKey();
+                        String graph = new String(cursor.key, 0, cursor.keyLength, UTF8);
+                        return new SimpleImmutableEntry<String, List<String>>(graph, cursor.readValues());
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Binary search for the last block whose first key is not greater than the query.
+     * @return the block number, or -1 if the query sorts before all keys
+     */
+    private int findBlock(byte[] query) {
+        int low = 0;
+        int high = blockCount - 1;
+        int found = -1;
+        int[] length = new int[1];
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int pos = blockOffset(mid);
+            // the first key of a block has no shared prefix
+            pos = skipVarint(pos);
+            pos = readVarint(pos, length);
+            if (compareAt(pos, length[0], query) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private int blockOffset(int block) {
+        return data.getInt(blockIndexOffset + 4 * block);
+    }
+
+    private int compareAt(int pos, int length, byte[] query) {
+        int n = Math.min(length, query.length);
+        for (int i = 0; i < n; i++) {
+            int a = data.get(pos + i) & 0xff;
+            int b = query[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - query.length;
+    }
+
+    static int compare(byte[] a, int aLength, byte[] b, int bLength) {
+        int n = Math.min(aLength, bLength);
+        for (int i = 0; i < n; i++) {
+            int x = a[i] & 0xff;
+            int y = b[i] & 0xff;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private int readVarint(int pos, int[] value) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get(pos++);
+            result |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        value[0] = result;
+        return pos;
+    }
+
+    private int skipVarint(int pos) {
+        while ((data.get(pos++) & 0x80) != 0) {
+            // continue
+        }
+        return pos;
+    }
+
+    /**
+     * Sequential reader over the entries, starting at a block boundary.
+     */
+    private final class Cursor {
+        private int pos;
+        private int entry;
+        private final int[] value = new int[1];
+        byte[] key = new byte[64];
+        int keyLength;
+
+        Cursor(int pos, int block) {
+            this.pos = pos;
+            this.entry = block * BLOCK_SIZE;
+        }
+
+        boolean hasNext() {
+            return entry < entryCount;
+        }
+
+        void readKey() {
+            pos = readVarint(pos, value);
+            int shared = value[0];
+            pos = readVarint(pos, value);
+            int suffix = value[0];
+            if (shared + suffix > key.length) {
+                key = Arrays.copyOf(key, Math.max(2 * key.length, shared + suffix));
+            }
+            for (int i = 0; i < suffix; i++) {
+                key[shared + i] = data.get(pos + i);
+            }
+            pos += suffix;
+            keyLength = shared + suffix;
+            entry++;
+        }
+
+        List<String> readValues() {
+            pos = readVarint(pos, value);
+            int count = value[0];
+            List<String> values = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                pos = readVarint(pos, value);
+                byte[] bytes = new byte[value[0]];
+                for (int k = 0; k < bytes.length; k++) {
+                    bytes[k] = data.get(pos + k);
+                }
+                pos += bytes.length;
+                values.add(new String(bytes, UTF8));
+            }
+            return values;
+        }
+
+        void skipValues() {
+            pos = readVarint(pos, value);
+            int count = value[0];
+            for (int i = 0; i < count; i++) {
+                pos = readVarint(pos, value);
+                pos += value[0];
+            }
+        }
+    }
+}
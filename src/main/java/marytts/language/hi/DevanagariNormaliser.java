@@ -0,0 +1,128 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+/**
+ * Brings equivalent spellings of a Hindi word to one form before it is
+ * looked up or transcribed, so that they share one entry in the
+ * userdict, the lexicon and the transcription cache:
+ * <ul>
+ * <li>a consonant followed by the nukta (U+093C) becomes the precomposed
+ * letter, e.g. KA followed by the nukta becomes QA (U+0958); a nukta
+ * with no precomposed form is dropped;</li>
+ * <li>format characters such as the zero width joiner and non-joiner
+ * and the soft hyphen are dropped;</li>
+ * <li>Devanagari digits become ASCII digits, and the danda and double
+ * danda become a full stop.</li>
+ * </ul>
+ *
+ * This is not Unicode normalisation: NFC decomposes U+0958 to U+095F,
+ * whereas the UTF-8 to IT3 map of the letter-to-sound rules only knows
+ * the precomposed letters. The text is scanned once; a text that needs
+ * no change is returned as it is, without allocating.
+ */
+public final class DevanagariNormaliser {
+
+    private static final char NUKTA = '\u093C';
+
+    /** Working buffer of each thread, grown as needed */
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[64];
+        }
+    };
+
+    private DevanagariNormaliser() {
+    }
+
+    /**
+     * @param text
+     * @return the normalised text, which is the text itself if nothing changes
+     */
+    public static String normalise(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && !needsChange(text.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return text;
+        }
+        // nothing grows, so the output fits in the length of the input
+        char[] buf = BUFFER.get();
+        if (buf.length < length) {
+            buf = new char[Math.max(length, 2 * buf.length)];
+            BUFFER.set(buf);
+        }
+        text.getChars(0, i, buf, 0);
+        int n = i;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == NUKTA) {
+                char folded = n > 0 ? withNukta(buf[n - 1]) : 0;
+                if (folded != 0) {
+                    buf[n - 1] = folded;
+                }
+            } else if (c >= '०' && c <= '९') {
+                buf[n++] = (char) ('0' + (c - '०'));
+            } else if (c == '।' || c == '॥') {
+                buf[n++] = '.';
+            } else if (!isFormat(c)) {
+                buf[n++] = c;
+            }
+        }
+        return new String(buf, 0, n);
+    }
+
+    private static boolean needsChange(char c) {
+        if (c >= '\u0900' && c <= '\u097F') {
+            return c == NUKTA || (c >= '०' && c <= '९') || c == '।' || c == '॥';
+        }
+        return isFormat(c);
+    }
+
+    private static boolean isFormat(char c) {
+        // nothing below the soft hyphen is a format character
+        return c >= '\u00AD' && Character.getType(c) == Character.FORMAT;
+    }
+
+    /**
+     * @param base
+     * @return the precomposed letter for base followed by the nukta, or 0 if there is none
+     */
+    private static char withNukta(char base) {
+        switch (base) {
+        case 'क': return '\u0958';
+        case 'ख': return '\u0959';
+        case 'ग': return '\u095A';
+        case 'ज': return '\u095B';
+        case 'ड': return '\u095C';
+        case 'ढ': return '\u095D';
+        case 'फ': return '\u095E';
+        case 'य': return '\u095F';
+        case 'न': return '\u0929';
+        case 'र': return '\u0931';
+        case 'ळ': return '\u0934';
+        default: return 0;
+        }
+    }
+}
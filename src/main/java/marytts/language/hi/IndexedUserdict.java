@@ -0,0 +1,168 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A userdict prepared for lookup by part-of-speech. Each entry
+ * "phones" or "phones|pos pos ..." is split once into its transcription
+ * and its parts-of-speech, which are coded as ints, so that a lookup is
+ * a hash probe followed by int comparisons.
+ *
+ * A {@link CompiledUserdict} is not copied onto the heap; its entries
+ * are split when they are looked up.
+ *
+ * Most words are not in the userdict, so the keys are also put into a
+ * {@link BloomFilter}, which turns away nearly all misses before the
+ * map is probed. A compiled userdict brings its own filter.
+ */
+public class IndexedUserdict {
+
+    private static final int[] NO_POS = new int[0];
+
+    private final Map<String, List<String>> source;
+    /** the split entries, or null if they are split on lookup */
+    private final Map<String, Entries> index;
+    private final BloomFilter keys;
+    private final ConcurrentMap<String, Integer> posCodes = new ConcurrentHashMap<String, Integer>();
+    private final AtomicInteger nextCode = new AtomicInteger();
+
+    /**
+     * @param source map from graphemes to entries "phones" or "phones|pos"
+     */
+    public IndexedUserdict(Map<String, List<String>> source) {
+        this.source = source;
+        if (source instanceof CompiledUserdict) {
+            BloomFilter stored = ((CompiledUserdict) source).getKeyFilter();
+            keys = stored != null ? stored : new BloomFilter(source.keySet());
+            index = null;
+        } else {
+            keys = new BloomFilter(source.keySet());
+            index = new HashMap<String, Entries>(source.size() * 4 / 3 + 1);
+            for (Map.Entry<String, List<String>> e : source.entrySet()) {
+                index.put(e.getKey(), split(e.getValue()));
+            }
+        }
+    }
+
+    /**
+     * The userdict this index was built from.
+     * @return map from graphemes to entries
+     */
+    public Map<String, List<String>> getSource() {
+        return source;
+    }
+
+    /**
+     * Look up the transcription of a word. Among several entries, the
+     * first one listing the given part-of-speech is chosen; if none
+     * does, the last entry is.
+     * @param graph the graphemic form of the word
+     * @param pos the part-of-speech, or null
+     * @return the transcription, or null if the word is not in the userdict
+     */
+    public String lookup(String graph, String pos) {
+        if (!keys.mightContain(graph)) {
+            return null;
+        }
+        Entries entries;
+        if (index != null) {
+            entries = index.get(graph);
+        } else {
+            List<String> values = source.get(graph);
+            entries = values != null ? split(values) : null;
+        }
+        if (entries == null) {
+            return null;
+        }
+        Integer code = pos != null ? posCodes.get(pos) : null;
+        return code != null ? entries.select(code) : entries.defaultTranscription;
+    }
+
+    private Entries split(List<String> values) {
+        String[] transcriptions = new String[values.size()];
+        int[][] pos = new int[transcriptions.length][];
+        for (int i = 0; i < transcriptions.length; i++) {
+            String entry = values.get(i);
+            int bar = entry.indexOf('|');
+            if (bar < 0) {
+                transcriptions[i] = entry;
+                pos[i] = NO_POS;
+                continue;
+            }
+            transcriptions[i] = entry.substring(0, bar);
+            StringTokenizer tokenizer = new StringTokenizer(entry.substring(bar + 1));
+            int[] codes = new int[tokenizer.countTokens()];
+            for (int k = 0; k < codes.length; k++) {
+                codes[k] = codeFor(tokenizer.nextToken());
+            }
+            pos[i] = codes;
+        }
+        return new Entries(transcriptions, pos);
+    }
+
+    private int codeFor(String pos) {
+        Integer code = posCodes.get(pos);
+        if (code == null) {
+            // a code lost in a race is simply never used
+            Integer fresh = Integer.valueOf(nextCode.getAndIncrement());
+            code = posCodes.putIfAbsent(pos, fresh);
+            if (code == null) {
+                code = fresh;
+            }
+        }
+        return code.intValue();
+    }
+
+    /**
+     * The entries of one word.
+     */
+    private static final class Entries {
+        private final String[] transcriptions;
+        private final int[][] pos;
+        /** the transcription used when no entry matches the part-of-speech */
+        private final String defaultTranscription;
+
+        Entries(String[] transcriptions, int[][] pos) {
+            this.transcriptions = transcriptions;
+            this.pos = pos;
+            this.defaultTranscription = transcriptions.length > 0 ? transcriptions[transcriptions.length - 1] : null;
+        }
+
+        String select(int code) {
+            for (int i = 0; i < transcriptions.length; i++) {
+                for (int c : pos[i]) {
+                    if (c == code) {
+                        return transcriptions[i];
+                    }
+                }
+            }
+            return defaultTranscription;
+        }
+    }
+}
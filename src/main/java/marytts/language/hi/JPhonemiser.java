@@ -28,16 +28,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
 
 import marytts.datatypes.MaryData;
 import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
 import marytts.exceptions.MaryConfigurationException;
 import marytts.fst.FSTLookup;
+import marytts.language.hi.metrics.MetricsRegistry;
+import marytts.language.hi.metrics.PhonemiserMetrics;
 import marytts.language.hi.phonemiser.HindiLTS;
 import marytts.modules.InternalModule;
 import marytts.modules.phonemiser.AllophoneSet;
@@ -48,6 +59,7 @@ import marytts.util.dom.MaryDomUtils;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.traversal.NodeIterator;
 
 
@@ -60,9 +72,30 @@ import org.w3c.dom.traversal.NodeIterator;
 public class JPhonemiser extends InternalModule
 {
 
-    protected Map<String, List<String>> userdict;
-    protected FSTLookup lexicon;
+    protected volatile Map<String, List<String>> userdict;
+    private volatile IndexedUserdict indexedUserdict;
+    protected String userdictFilename;
+    protected String compiledUserdictFilename;
+    protected UserdictReloader userdictReloader;
+    protected PhonemiserMetrics metrics;
+    protected volatile FSTLookup lexicon;
     protected HindiLTS lts;
+    protected TranscriptionCache cache;
+    protected volatile SecondaryPhonemiser secondaryPhonemiser;
+    protected TranscriptionCache secondaryCache;
+    /** Documents with at least this many words are phonemised in parallel; 0 for never */
+    protected int parallelThreshold;
+    protected int parallelThreads;
+    private ExecutorService executor;
+    private boolean ownsExecutor;
+    /** How long {@link #process(MaryData)} waits for the dictionaries, in milliseconds */
+    protected long initTimeout;
+    private final CountDownLatch dictionariesLoaded = new CountDownLatch(1);
+    private volatile boolean warnedNotReady;
+    private final Map<String, Long> loadTimes = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+    /** Seconds between checks of the userdict files */
+    private int reloadInterval;
+    private boolean shutDown;
 
     protected AllophoneSet allophoneSet;
 
@@ -70,9 +103,66 @@ public class JPhonemiser extends InternalModule
     throws IOException,  MaryConfigurationException
     {
         this("JPhonemiser", MaryDataType.PARTSOFSPEECH, MaryDataType.PHONEMES,
-                propertyPrefix+"allophoneset",
+                new TimedAllophoneSet(propertyPrefix+"allophoneset"),
                 propertyPrefix+"userdict",
                 propertyPrefix+"utf8toit3map");
+        initTimeout = MaryProperties.getInteger(propertyPrefix+"init.timeout", 0);
+        if (MaryProperties.getBoolean(propertyPrefix+"stemcache.enabled", false)) {
+            lts.useStemCache(MaryProperties.needStream(propertyPrefix+"stemcache.suffixes"),
+                    MaryProperties.getInteger(propertyPrefix+"stemcache.size", 100000));
+        }
+        if (MaryProperties.getBoolean(propertyPrefix+"cache.enabled", true)) {
+            int cacheSize = MaryProperties.getInteger(propertyPrefix+"cache.size", 50000);
+            if (cacheSize > 0) {
+                cache = new TranscriptionCache(cacheSize);
+            }
+        }
+        String secondaryClass = MaryProperties.getProperty(propertyPrefix+"secondary.class");
+        if (secondaryClass != null && secondaryClass.trim().length() > 0) {
+            try {
+                secondaryPhonemiser = (SecondaryPhonemiser) Class.forName(secondaryClass.trim()).newInstance();
+            } catch (Exception e) {
+                throw new MaryConfigurationException("Cannot use secondary phonemiser "+secondaryClass, e);
+            }
+        }
+        int secondaryCacheSize = MaryProperties.getInteger(propertyPrefix+"secondary.cache.size", 10000);
+        if (secondaryCacheSize > 0) {
+            secondaryCache = new TranscriptionCache(secondaryCacheSize);
+        }
+        parallelThreshold = MaryProperties.getInteger(propertyPrefix+"parallel.threshold", 0);
+        parallelThreads = MaryProperties.getInteger(propertyPrefix+"parallel.threads", 0);
+        reloadInterval = MaryProperties.getInteger(propertyPrefix+"userdict.reload.interval", 0);
+        if (reloadInterval > 0 && (userdictFilename != null || compiledUserdictFilename != null)) {
+            userdictReloader = new UserdictReloader(new UserdictReloader.Target() {
+                public Map<String, List<String>> loadUserdict(List<String> errors) throws IOException {
+                    return JPhonemiser.this.loadUserdict(errors);
+                }
+
+                public void publishUserdict(Map<String, List<String>> newUserdict) {
+                    setUserdict(newUserdict);
+                }
+            }, userdictFilename, compiledUserdictFilename);
+        }
+        if (MaryProperties.getBoolean(propertyPrefix+"metrics.enabled", true)) {
+            metrics = new PhonemiserMetrics(propertyPrefix+"phonemiser");
+            String registryClass = MaryProperties.getProperty(propertyPrefix+"metrics.registry");
+            if (registryClass != null && registryClass.trim().length() > 0) {
+                try {
+                    metrics.registerWith((MetricsRegistry) Class.forName(registryClass.trim()).newInstance());
+                } catch (Exception e) {
+                    throw new MaryConfigurationException("Cannot use metrics registry "+registryClass, e);
+                }
+            }
+            try {
+                metrics.registerMBean("marytts:type=JPhonemiser,locale="+getLocale());
+            } catch (JMException e) {
+                logger.warn("Cannot register phonemiser metrics with JMX", e);
+            }
+        }
+        // last, so that a background loader sees all of the fields above;
+        // the reloader is started once the dictionaries are loaded
+        initDictionaries(propertyPrefix+"lexicon",
+                MaryProperties.getBoolean(propertyPrefix+"init.background", false));
     }
     
     
@@ -80,7 +170,6 @@ public class JPhonemiser extends InternalModule
      * Constructor providing the individual filenames of files that are required.
      * @param allophonesFilename
      * @param userdictFilename
-     * @param lexiconFilename
      * @param ltsFilename
      * @throws Exception
      */
@@ -89,36 +178,257 @@ public class JPhonemiser extends InternalModule
             String allophonesProperty, String userdictProperty, String utf8toit3mapProperty)
     throws IOException,  MaryConfigurationException
     {
-        super(componentName, inputType, outputType,
-                MaryRuntimeUtils.needAllophoneSet(allophonesProperty).getLocale());
-        allophoneSet = MaryRuntimeUtils.needAllophoneSet(allophonesProperty);
-        // userdict is optional
-        String userdictFilename = MaryProperties.getFilename(userdictProperty);
-        if (userdictFilename != null) {
-        	if (new File(userdictFilename).exists()) {
-        		userdict = readLexicon(userdictFilename);
-        	} else {
-        		logger.info("User dictionary '"+userdictFilename+"' for locale '"+getLocale()+"' does not exist. Ignoring.");
-        	}
-        }
+        this(componentName, inputType, outputType,
+                allophonesProperty, userdictProperty, null, utf8toit3mapProperty);
+    }
+    
+    
+    /**
+     * Constructor providing the individual filenames of files that are required.
+     * @param allophonesFilename
+     * @param userdictFilename
+     * @param lexiconFilename the compiled FST lexicon; optional, may be null
+     * @param ltsFilename
+     * @throws Exception
+     */
+    public JPhonemiser(String componentName, 
+            MaryDataType inputType, MaryDataType outputType,
+            String allophonesProperty, String userdictProperty, String lexiconProperty,
+            String utf8toit3mapProperty)
+    throws IOException,  MaryConfigurationException
+    {
+        this(componentName, inputType, outputType,
+                allophonesProperty, userdictProperty, lexiconProperty, utf8toit3mapProperty, false);
+    }
+    
+    
+    /**
+     * Constructor providing the individual filenames of files that are required.
+     * The letter-to-sound map is always loaded here; the userdict and the
+     * lexicon may be loaded on a background thread, in which case words are
+     * transcribed with the rules only until {@link #isReady()}.
+     * @param allophonesFilename
+     * @param userdictFilename
+     * @param lexiconFilename the compiled FST lexicon; optional, may be null
+     * @param ltsFilename
+     * @param backgroundInit whether to load the userdict and the lexicon
+     * on a background thread
+     * @throws Exception
+     */
+    public JPhonemiser(String componentName, 
+            MaryDataType inputType, MaryDataType outputType,
+            String allophonesProperty, String userdictProperty, String lexiconProperty,
+            String utf8toit3mapProperty, boolean backgroundInit)
+    throws IOException,  MaryConfigurationException
+    {
+        this(componentName, inputType, outputType, new TimedAllophoneSet(allophonesProperty),
+                userdictProperty, utf8toit3mapProperty);
+        initDictionaries(lexiconProperty, backgroundInit);
+    }
+    
+    
+    private JPhonemiser(String componentName, 
+            MaryDataType inputType, MaryDataType outputType,
+            TimedAllophoneSet allophones, String userdictProperty, String utf8toit3mapProperty)
+    throws IOException,  MaryConfigurationException
+    {
+        super(componentName, inputType, outputType, allophones.allophoneSet.getLocale());
+        allophoneSet = allophones.allophoneSet;
+        recordLoadTime("allophone set", allophones.millis);
+        // userdict is optional; a compiled userdict is preferred over the text file
+        userdictFilename = MaryProperties.getFilename(userdictProperty);
+        compiledUserdictFilename = MaryProperties.getFilename(userdictProperty+".compiled");
+        // the rules are needed for every word, and are cheap to load
+        long start = System.currentTimeMillis();
         InputStream utf8toit3mapStream = MaryProperties.needStream(utf8toit3mapProperty);
         lts = new HindiLTS(utf8toit3mapStream);
+        recordLoadTime("letter-to-sound rules", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Load the userdict and the lexicon, here or on a background thread,
+     * and then start the userdict reloader, if any, so that it never
+     * races the initial load. This is the last step of construction, so
+     * that the loader thread sees the module fully set up.
+     * @param lexiconProperty
+     * @param backgroundInit whether to load on a background thread
+     */
+    private void initDictionaries(final String lexiconProperty, boolean backgroundInit)
+    throws IOException, MaryConfigurationException
+    {
+        if (backgroundInit) {
+            Thread loader = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        loadDictionaries(lexiconProperty);
+                    } catch (Exception e) {
+                        logger.error("Cannot load dictionaries for locale '"+getLocale()+"'; using rules only", e);
+                    } finally {
+                        dictionariesLoaded.countDown();
+                    }
+                    startReloader();
+                }
+            }, "JPhonemiser-init-"+getLocale());
+            loader.setDaemon(true);
+            loader.start();
+        } else {
+            loadDictionaries(lexiconProperty);
+            dictionariesLoaded.countDown();
+            startReloader();
+        }
+    }
+
+    private synchronized void startReloader()
+    {
+        if (userdictReloader != null && !shutDown) {
+            userdictReloader.start(reloadInterval);
+        }
+    }
+
+    /**
+     * Load the userdict and the lexicon. The lexicon is in place before
+     * the userdict is published, so that publishing it also drops any
+     * transcriptions cached while neither was loaded.
+     * @param lexiconProperty
+     */
+    private void loadDictionaries(String lexiconProperty)
+    throws IOException, MaryConfigurationException
+    {
+        // lexicon is optional
+        if (lexiconProperty != null && MaryProperties.getProperty(lexiconProperty) != null) {
+            long start = System.currentTimeMillis();
+            InputStream lexiconStream = MaryProperties.needStream(lexiconProperty);
+            lexicon = new FSTLookup(lexiconStream, lexiconProperty);
+            recordLoadTime("lexicon", System.currentTimeMillis() - start);
+        }
+        long start = System.currentTimeMillis();
+        Map<String, List<String>> initialUserdict = loadUserdict(null);
+        if (initialUserdict != null) {
+            recordLoadTime("userdict", System.currentTimeMillis() - start);
+        } else if (userdictFilename != null) {
+            logger.info("User dictionary '"+userdictFilename+"' for locale '"+getLocale()+"' does not exist. Ignoring.");
+        }
+        setUserdict(initialUserdict);
+    }
+
+    private void recordLoadTime(String resource, long millis)
+    {
+        loadTimes.put(resource, millis);
+        logger.info("Loaded "+resource+" for locale '"+getLocale()+"' in "+millis+" ms");
     }
     
     
     public MaryData process(MaryData d)
         throws Exception
     {
+        return process(d, null);
+    }
+
+    /**
+     * Phonemise a document, sentence by sentence if a listener is given.
+     * A copy of each sentence (s element) is handed to the listener as
+     * soon as its tokens are transcribed, so that later stages can start
+     * on it while the rest of the document is still being phonemised.
+     * Tokens outside of any sentence are transcribed last. Sentences are
+     * too short to be worth phonemising in parallel.
+     * 
+     * @param d the document
+     * @param listener receives each sentence when it is done, or null to
+     * phonemise the whole document at once
+     * @return the phonemised document
+     * @throws Exception if the listener throws one, which aborts the
+     * processing of the document
+     */
+    public MaryData process(MaryData d, SentenceListener listener)
+        throws Exception
+    {
+        awaitDictionaries();
+        long start = System.nanoTime();
         Document doc = d.getDocument();
-        NodeIterator it = MaryDomUtils.createNodeIterator(doc, doc, MaryXML.TOKEN);
+        int partCount;
+        if (listener == null) {
+            partCount = phonemiseTokens(doc, doc, false);
+        } else {
+            partCount = 0;
+            NodeIterator it = MaryDomUtils.createNodeIterator(doc, doc, MaryXML.SENTENCE);
+            Element s;
+            while ((s = (Element) it.nextNode()) != null) {
+                partCount += phonemiseTokens(doc, s, false);
+                listener.sentencePhonemised(detach(doc, s));
+            }
+            partCount += phonemiseTokens(doc, doc, true);
+        }
+        if (metrics != null) {
+            metrics.recordDocument(System.nanoTime() - start, partCount);
+        }
+        MaryData result = new MaryData(outputType(), d.getLocale());
+        result.setDocument(doc);
+        return result;
+    }
+
+    /**
+     * Copy a sentence into a document of its own, so that it can be used
+     * while the document it comes from is still being phonemised.
+     * @param doc the document being phonemised
+     * @param s a sentence of doc
+     * @return the copy of s, the only sentence of a new MaryXML document
+     */
+    private static Element detach(Document doc, Element s)
+    {
+        Document copy = MaryXML.newDocument();
+        Element root = copy.getDocumentElement();
+        String lang = doc.getDocumentElement().getAttribute("xml:lang");
+        if (lang.length() > 0) {
+            root.setAttribute("xml:lang", lang);
+        }
+        Element sentence = (Element) copy.importNode(s, true);
+        root.appendChild(sentence);
+        return sentence;
+    }
+
+    /**
+     * Receives the sentences of a document as they are phonemised by
+     * {@link JPhonemiser#process(MaryData, SentenceListener)}.
+     */
+    public interface SentenceListener {
+        /**
+         * @param sentence a copy of an s element whose tokens have been
+         * transcribed, in a MaryXML document of its own; it is not affected
+         * by the further processing of the document it was copied from
+         * @throws Exception to abort the processing of the document
+         */
+        void sentencePhonemised(Element sentence) throws Exception;
+    }
+
+    /**
+     * Transcribe the tokens below a node.
+     * @param doc
+     * @param root
+     * @param outsideSentences whether to skip the tokens within s elements
+     * @return the number of words transcribed
+     */
+    private int phonemiseTokens(Document doc, Node root, boolean outsideSentences)
+        throws IOException
+    {
+        NodeIterator it = MaryDomUtils.createNodeIterator(doc, root, MaryXML.TOKEN);
         Element t = null;
+        List<Element> tokens = new ArrayList<Element>();
+        List<String[]> tokenParts = new ArrayList<String[]>();
+        List<String> tokenPos = new ArrayList<String>();
+        int partCount = 0;
         while ((t = (Element) it.nextNode()) != null) {
+                if (outsideSentences && MaryDomUtils.getAncestor(t, MaryXML.SENTENCE) != null) {
+                    continue;
+                }
                 String text;
                 
                 // Do not touch tokens for which a transcription is already
                 // given (exception: transcription contains a '*' character:
                 if (t.hasAttribute("ph") &&
                     !t.getAttribute("ph").contains("*")) {
+                    if (metrics != null) {
+                        metrics.countSkipped();
+                    }
                     continue;
                 }
                 if (t.hasAttribute("sounds_like"))
@@ -132,72 +442,286 @@ public class JPhonemiser extends InternalModule
                     pos = t.getAttribute("pos");
                 }
                 
-                if (text != null && !text.equals("")) {
+                if ("$PUNCT".equals(pos)) {
+                    if (metrics != null) {
+                        metrics.countPunctuation();
+                    }
+                } else if (text != null && !text.equals("")) {
                     // If text consists of several parts (e.g., because that was
                     // inserted into the sounds_like attribute), each part
                     // is transcribed separately.
-                    StringBuilder ph = new StringBuilder();
-                    String g2pMethod = null;
                     StringTokenizer st = new StringTokenizer(text, " -");
-                    while (st.hasMoreTokens()) {
-                        String graph = st.nextToken();
-                        StringBuilder helper = new StringBuilder();
-                        if ( pos.equals("$PUNCT") ){
-                            continue;
-                        }
-                        String phon = phonemise(graph, pos, helper);
-                        if (ph.length() == 0) { // first part
-                            // The g2pMethod of the combined beast is
-                            // the g2pMethod of the first constituant.
-                            g2pMethod = helper.toString();
-                            ph.append(phon);
-                        } else { // following parts
-                            ph.append(" - ");
-                            // Reduce primary to secondary stress:
-                            ph.append(phon.replace('\'', ','));
-                       }
+                    String[] parts = new String[st.countTokens()];
+                    for (int i = 0; i < parts.length; i++) {
+                        parts[i] = st.nextToken();
                     }
-                    
-                    if (ph != null && ph.length() > 0) {
-                        setPh(t, ph.toString());
-                        t.setAttribute("g2p_method", g2pMethod);
+                    tokens.add(t);
+                    tokenParts.add(parts);
+                    tokenPos.add(pos);
+                    partCount += parts.length;
+                }
+        }
+
+        if (parallelThreshold > 0 && partCount >= parallelThreshold) {
+            // Transcribe the distinct parts together, in parallel,
+            // and write them back in document order
+            List<String> words = new ArrayList<String>(partCount);
+            List<String> wordPos = new ArrayList<String>(partCount);
+            for (int i = 0; i < tokens.size(); i++) {
+                for (String graph : tokenParts.get(i)) {
+                    words.add(graph);
+                    wordPos.add(tokenPos.get(i));
+                }
+            }
+            List<String> g2pMethods = new ArrayList<String>(partCount);
+            List<String> phones = phonemise(words, wordPos, g2pMethods, getExecutor());
+            int k = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                int n = tokenParts.get(i).length;
+                // the method of the first part that has a transcription
+                String g2pMethod = null;
+                for (int j = k; j < k + n && g2pMethod == null; j++) {
+                    g2pMethod = g2pMethods.get(j);
+                }
+                setTranscription(tokens.get(i), phones.subList(k, k + n), g2pMethod);
+                k += n;
+            }
+        } else {
+            List<String> phones = new ArrayList<String>();
+            for (int i = 0; i < tokens.size(); i++) {
+                phones.clear();
+                String g2pMethod = null;
+                for (String graph : tokenParts.get(i)) {
+                    StringBuilder helper = new StringBuilder();
+                    String phon = phonemise(graph, tokenPos.get(i), helper);
+                    phones.add(phon);
+                    if (g2pMethod == null && phon != null) {
+                        g2pMethod = helper.toString();
                     }
+                }
+                setTranscription(tokens.get(i), phones, g2pMethod);
             }
         }
-        MaryData result = new MaryData(outputType(), d.getLocale());
-        result.setDocument(doc);
-        return result;
+        return partCount;
+    }
+
+    /**
+     * Wait up to {@link #initTimeout} ms for the dictionaries to be loaded.
+     * If they are still not there, the words are transcribed with the
+     * rules only.
+     */
+    void awaitDictionaries()
+    {
+        try {
+            if (isReady() || awaitReady(initTimeout, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!warnedNotReady) {
+            warnedNotReady = true;
+            logger.warn("Dictionaries for locale '"+getLocale()+"' are still loading; using rules only");
+        }
+    }
+
+    /**
+     * Whether the userdict and the lexicon have been loaded (or have
+     * failed to load). Until then, words are transcribed with the rules only.
+     * 
+     * @return true if the dictionaries are in place
+     */
+    public boolean isReady()
+    {
+        return dictionariesLoaded.getCount() == 0;
+    }
+
+    /**
+     * Wait for the userdict and the lexicon to be loaded.
+     * 
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if the dictionaries are in place, false if the timeout elapsed
+     * @throws InterruptedException
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit)
+    throws InterruptedException
+    {
+        return dictionariesLoaded.await(timeout, unit);
+    }
+
+    /**
+     * How long each resource took to load, in the order they were loaded.
+     * 
+     * @return milliseconds by resource name
+     */
+    public Map<String, Long> getLoadTimes()
+    {
+        synchronized (loadTimes) {
+            return new LinkedHashMap<String, Long>(loadTimes);
+        }
+    }
+
+    /**
+     * Combine the transcriptions of the parts of a token and set them
+     * as its transcription.
+     * @param t the token
+     * @param phones the transcription of each part of the token
+     * @param g2pMethod the method of phonemisation of the first part
+     */
+    private void setTranscription(Element t, List<String> phones, String g2pMethod)
+    {
+        String ph = combineParts(phones);
+        if (ph != null) {
+            setPh(t, ph);
+            t.setAttribute("g2p_method", g2pMethod);
+            if (metrics != null) {
+                metrics.countToken(g2pMethod);
+            }
+        }
+    }
+
+    /**
+     * Combine the transcriptions of the parts of a token into one.
+     * @param phones the transcription of each part of the token, or null
+     * for parts that have none
+     * @return the combined transcription, or null if it is empty
+     */
+    static String combineParts(List<String> phones)
+    {
+        StringBuilder ph = new StringBuilder();
+        for (String phon : phones) {
+            if (phon == null) {
+                continue;
+            }
+            if (ph.length() == 0) { // first part
+                // The g2pMethod of the combined beast is
+                // the g2pMethod of the first constituant.
+                ph.append(phon);
+            } else { // following parts
+                ph.append(" - ");
+                // Reduce primary to secondary stress:
+                ph.append(phon.replace('\'', ','));
+            }
+        }
+        return ph.length() > 0 ? ph.toString() : null;
+    }
+
+    /**
+     * The executor on which long documents are phonemised. Unless one
+     * was set with {@link #setExecutor(ExecutorService)}, a fork-join
+     * pool is created on first use.
+     * @return the executor
+     */
+    protected synchronized ExecutorService getExecutor()
+    {
+        if (executor == null) {
+            int threads = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+            executor = new ForkJoinPool(threads);
+            ownsExecutor = true;
+        }
+        return executor;
+    }
+
+    /**
+     * Use the given executor to phonemise long documents.
+     * @param executor the executor; it is not shut down by this module
+     */
+    public synchronized void setExecutor(ExecutorService executor)
+    {
+        if (ownsExecutor) {
+            this.executor.shutdown();
+        }
+        this.executor = executor;
+        ownsExecutor = false;
+    }
+
+    @Override
+    public synchronized void shutdown()
+    {
+        shutDown = true;
+        if (metrics != null) {
+            metrics.unregisterMBean();
+        }
+        if (userdictReloader != null) {
+            userdictReloader.stop();
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
+            executor = null;
+            ownsExecutor = false;
+        }
+        super.shutdown();
     }
 
     /**
      * Phonemise the word text. This starts with a simple lexicon lookup,
      * followed by some heuristics, and finally applies letter-to-sound rules
-     * if nothing else was successful. 
+     * if nothing else was successful. The text is first brought to the
+     * form of {@link DevanagariNormaliser}, so that equivalent spellings
+     * share their cache and dictionary entries.
+     * 
+     * Words without Devanagari skip the rules: after the userdict and the
+     * lexicon, they go to the {@link SecondaryPhonemiser}, if there is one,
+     * whose transcriptions are kept in a cache of their own. Words that mix
+     * Devanagari with other letters are transcribed one run of each
+     * script at a time.
      * 
      * @param text the textual (graphemic) form of a word.
      * @param pos the part-of-speech of the word
      * @param g2pMethod This is an awkward way to return a second
      * String parameter via a StringBuilder. If a phonemisation of the text is
      * found, this parameter will be filled with the method of phonemisation
-     * ("lexicon", ... "rules"). 
+     * ("userdict", "lexicon" or "rules"). 
      * @return a phonemisation of the text if one can be generated, or
      * null if no phonemisation method was successful.
      * @throws IOException 
      */
     public String phonemise(String text, String pos, StringBuilder g2pMethod) throws IOException
     {
-        // First, try a simple userdict lookup:
+        text = DevanagariNormaliser.normalise(text);
+        if (scriptOf(text) == Script.OTHER) {
+            return phonemiseForeign(text, pos, g2pMethod);
+        }
+        TranscriptionCache.Transcription cached = null;
+        int generation = 0;
+        if (cache != null) {
+            generation = cache.getGeneration();
+            cached = cache.get(text, pos);
+            if (cached != null) {
+                g2pMethod.append(cached.getG2pMethod());
+                return cached.getPhones();
+            }
+        }
+        String result = phonemiseUncached(text, pos, g2pMethod);
+        if (result != null && cache != null) {
+            cache.put(text, pos, new TranscriptionCache.Transcription(result, g2pMethod.toString()), generation);
+        }
+        return result;
+    }
 
-        String result = userdictLookup(text, pos);
+    /**
+     * Phonemise the word text without consulting the transcription cache.
+     * @see #phonemise(String, String, StringBuilder)
+     */
+    protected String phonemiseUncached(String text, String pos, StringBuilder g2pMethod) throws IOException
+    {
+        String result = dictionaryLookup(text, pos, g2pMethod);
         if (result != null) {
-            g2pMethod.append("userdict");
             return result;
         }
+        if (scriptOf(text) == Script.MIXED) {
+            return phonemiseMixed(text, pos, g2pMethod);
+        }
         
         // Cannot find it in the lexicon -- apply letter-to-sound rules
         // to the normalised form
 
+        long start = System.nanoTime();
         result = lts.phonemise(text);
+        if (metrics != null) {
+            metrics.recordRules(System.nanoTime() - start, 1);
+        }
         if (result != null) {
             g2pMethod.append("rules");
             return result;
@@ -205,14 +729,342 @@ public class JPhonemiser extends InternalModule
 
         return null;
     }
+
+    /**
+     * Phonemise a word without Devanagari: look it up in the userdict
+     * and the lexicon, then ask the secondary phonemiser.
+     * @return the transcription, or null if there is none
+     */
+    private String phonemiseForeign(String text, String pos, StringBuilder g2pMethod) throws IOException
+    {
+        String result = dictionaryLookup(text, pos, g2pMethod);
+        if (result != null) {
+            return result;
+        }
+        SecondaryPhonemiser secondary = secondaryPhonemiser;
+        if (secondary == null) {
+            return null;
+        }
+        TranscriptionCache.Transcription cached = null;
+        int generation = 0;
+        if (secondaryCache != null) {
+            generation = secondaryCache.getGeneration();
+            cached = secondaryCache.get(text, pos);
+            if (cached != null) {
+                g2pMethod.append(cached.getG2pMethod());
+                return cached.getPhones();
+            }
+        }
+        result = secondary.phonemise(text, pos);
+        if (result != null) {
+            g2pMethod.append("secondary");
+            if (secondaryCache != null) {
+                secondaryCache.put(text, pos, new TranscriptionCache.Transcription(result, "secondary"), generation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Phonemise a word such as "WhatsAppपर" one run of each script at a
+     * time, and combine the runs as the parts of a token.
+     * @return the transcription, or null if no run has one
+     */
+    private String phonemiseMixed(String text, String pos, StringBuilder g2pMethod) throws IOException
+    {
+        List<String> phones = new ArrayList<String>();
+        String method = null;
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i < text.length() && isDevanagari(text.charAt(i)) == isDevanagari(text.charAt(start))) {
+                continue;
+            }
+            StringBuilder helper = new StringBuilder();
+            String phon = phonemise(text.substring(start, i), pos, helper);
+            phones.add(phon);
+            if (method == null && phon != null) {
+                method = helper.toString();
+            }
+            start = i;
+        }
+        String result = combineParts(phones);
+        if (result != null) {
+            g2pMethod.append(method);
+        }
+        return result;
+    }
+
+    /**
+     * Look the word up in the userdict, then in the lexicon.
+     * @return the transcription, or null if the word is in neither
+     */
+    private String dictionaryLookup(String text, String pos, StringBuilder g2pMethod)
+    {
+        // First, try a simple userdict lookup:
+
+        String result = userdictLookup(text, pos);
+        if (result != null) {
+            g2pMethod.append("userdict");
+            return result;
+        }
+
+        // Then, try the lexicon:
+
+        result = lexiconLookup(text, pos);
+        if (result != null) {
+            g2pMethod.append("lexicon");
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * Phonemise a batch of words, e.g. for corpus preparation. The
+     * result is the same as calling
+     * {@link #phonemise(String, String, StringBuilder)} for each word,
+     * but repeated words are only looked up once and the words that
+     * need letter-to-sound rules are transcribed together.
+     * 
+     * @param words the textual (graphemic) forms of the words
+     * @param pos the part-of-speech of each word, or null if there are none
+     * @param g2pMethods if not null, the method of phonemisation of each
+     * word is added to this list, or null where none was successful
+     * @param pool the pool to run the letter-to-sound rules on, or null
+     * to do all work in the calling thread
+     * @return the phonemisations, in the order of the words; null for
+     * words that could not be phonemised
+     * @throws IOException
+     */
+    public List<String> phonemise(List<String> words, List<String> pos, List<String> g2pMethods, ExecutorService pool)
+    throws IOException
+    {
+        if (pos != null && pos.size() != words.size()) {
+            throw new IllegalArgumentException("Got "+words.size()+" words but "+pos.size()+" parts-of-speech");
+        }
+        int generation = cache != null ? cache.getGeneration() : 0;
+        // one slot per distinct word and part-of-speech
+        Map<List<String>, Integer> slotIndex = new HashMap<List<String>, Integer>();
+        List<String> phones = new ArrayList<String>();
+        List<String> methods = new ArrayList<String>();
+        // slots left to the rules, with their words and parts-of-speech
+        List<Integer> ruleSlots = new ArrayList<Integer>();
+        List<String> ruleWords = new ArrayList<String>();
+        List<String> rulePos = new ArrayList<String>();
+        int[] slots = new int[words.size()];
+        StringBuilder g2pMethod = new StringBuilder();
+        for (int i = 0; i < slots.length; i++) {
+            String text = DevanagariNormaliser.normalise(words.get(i));
+            String onePos = pos != null ? pos.get(i) : null;
+            List<String> key = Arrays.asList(text, onePos);
+            Integer slot = slotIndex.get(key);
+            if (slot == null) {
+                slot = phones.size();
+                slotIndex.put(key, slot);
+                String result = null;
+                g2pMethod.setLength(0);
+                boolean forRules = scriptOf(text) == Script.DEVANAGARI;
+                TranscriptionCache.Transcription cached = cache != null && forRules ? cache.get(text, onePos) : null;
+                if (!forRules) {
+                    // not for the rules as they are; these are few, so take them one at a time
+                    result = phonemise(text, onePos, g2pMethod);
+                } else if (cached != null) {
+                    result = cached.getPhones();
+                    g2pMethod.append(cached.getG2pMethod());
+                } else {
+                    result = dictionaryLookup(text, onePos, g2pMethod);
+                    if (result == null) {
+                        ruleSlots.add(slot);
+                        ruleWords.add(text);
+                        rulePos.add(onePos);
+                    } else if (cache != null) {
+                        cache.put(text, onePos, new TranscriptionCache.Transcription(result, g2pMethod.toString()), generation);
+                    }
+                }
+                phones.add(result);
+                methods.add(result != null ? g2pMethod.toString() : null);
+            }
+            slots[i] = slot;
+        }
+
+        long start = System.nanoTime();
+        List<String> ruleResults = lts.phonemise(ruleWords, pool);
+        if (metrics != null) {
+            metrics.recordRules(System.nanoTime() - start, ruleWords.size());
+        }
+        for (int k = 0; k < ruleSlots.size(); k++) {
+            String result = ruleResults.get(k);
+            if (result == null) {
+                continue;
+            }
+            int slot = ruleSlots.get(k);
+            phones.set(slot, result);
+            methods.set(slot, "rules");
+            if (cache != null) {
+                cache.put(ruleWords.get(k), rulePos.get(k), new TranscriptionCache.Transcription(result, "rules"), generation);
+            }
+        }
+
+        List<String> result = new ArrayList<String>(slots.length);
+        for (int slot : slots) {
+            result.add(phones.get(slot));
+            if (g2pMethods != null) {
+                g2pMethods.add(methods.get(slot));
+            }
+        }
+        return result;
+    }
         
     
     
     
     
+    /**
+     * Replace the userdict. Cached transcriptions are dropped, since
+     * they may have come from the previous userdict.
+     * 
+     * @param newUserdict the new userdict, or null for none
+     */
+    protected void setUserdict(Map<String, List<String>> newUserdict)
+    {
+        indexedUserdict = newUserdict != null ? new IndexedUserdict(newUserdict) : null;
+        userdict = newUserdict;
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * The cache of word transcriptions, for inspecting its hit, miss and
+     * eviction counts.
+     * 
+     * @return the cache, or null if caching is disabled
+     */
+    public TranscriptionCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Use another phonemiser for the words without Devanagari. Cached
+     * transcriptions are dropped, since those of words without Devanagari
+     * and of words mixing scripts may have come from the previous one.
+     *
+     * @param phonemiser the phonemiser, or null to leave such words
+     * without a transcription unless they are in the userdict or the lexicon
+     */
+    public void setSecondaryPhonemiser(SecondaryPhonemiser phonemiser)
+    {
+        secondaryPhonemiser = phonemiser;
+        if (secondaryCache != null) {
+            secondaryCache.invalidate();
+        }
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    public SecondaryPhonemiser getSecondaryPhonemiser()
+    {
+        return secondaryPhonemiser;
+    }
+
+    /**
+     * Counters and latencies of this module, also registered with JMX.
+     * 
+     * @return the metrics, or null if they are disabled
+     */
+    public PhonemiserMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * The reloader watching the userdict files, for inspecting reload
+     * counts and times.
+     * 
+     * @return the reloader, or null if the userdict is not reloaded
+     */
+    public UserdictReloader getUserdictReloader()
+    {
+        return userdictReloader;
+    }
+
+    /**
+     * Load the userdict from the compiled file if it is usable, or else
+     * from the text file. The transcriptions of either are checked
+     * against the allophone set.
+     * 
+     * @param errors if not null, broken entries are reported here
+     * instead of being logged
+     * @return an immutable userdict, or null if there is no userdict file
+     * @throws IOException
+     */
+    protected Map<String, List<String>> loadUserdict(List<String> errors)
+    throws IOException
+    {
+        if (compiledUserdictFilename != null && isUsable(compiledUserdictFilename, userdictFilename)) {
+            CompiledUserdict compiled = CompiledUserdict.open(new File(compiledUserdictFilename));
+            for (Map.Entry<String, List<String>> e : compiled.entrySet()) {
+                for (String entry : e.getValue()) {
+                    int bar = entry.indexOf('|');
+                    checkTranscription(compiledUserdictFilename, e.getKey(),
+                            bar < 0 ? entry : entry.substring(0, bar), errors);
+                }
+            }
+            return compiled;
+        }
+        if (userdictFilename != null && new File(userdictFilename).exists()) {
+            return Collections.unmodifiableMap(readLexicon(userdictFilename, errors));
+        }
+        return null;
+    }
+
+    /**
+     * Look a given text up in the lexicon. A part-of-speech specific
+     * entry (stored as text+pos) is preferred over the general entry.
+     * 
+     * @param text
+     * @param pos
+     * @return the first transcription found, or null
+     */
+    public String lexiconLookup(String text, String pos)
+    {
+        if (lexicon == null || text == null || text.length() == 0) return null;
+        String[] entries = lexiconLookupPrimitive(text, pos);
+        // If entry is not found directly, try the following changes:
+        // - lowercase the word
+        // - all lowercase but first uppercase
+        if (entries.length == 0 && hasCase(text)) {
+            text = text.toLowerCase(getLocale());
+            entries = lexiconLookupPrimitive(text, pos);
+            if (entries.length == 0) {
+                text = text.substring(0,1).toUpperCase(getLocale()) + text.substring(1);
+                entries = lexiconLookupPrimitive(text, pos);
+            }
+        }
+
+        if (entries.length == 0) return null;
+        return entries[0];
+    }
+
+    private String[] lexiconLookupPrimitive(String text, String pos)
+    {
+        String[] entries;
+        if (pos != null) { // look for pos-specific version first
+            entries = lexicon.lookup(text+pos);
+            if (entries.length == 0) { // then look for general entry
+                entries = lexicon.lookup(text);
+            }
+        } else {
+            entries = lexicon.lookup(text);
+        }
+        return entries;
+    }
+
     /**
      * look a given text up in the userdict. part-of-speech is used 
-     * in case of ambiguity.
+     * in case of ambiguity: the first entry listing it is chosen, and
+     * the last entry if none does.
      * 
      * @param text
      * @param pos
@@ -220,37 +1072,88 @@ public class JPhonemiser extends InternalModule
      */
     public String userdictLookup(String text, String pos)
     {
-        if (userdict == null || text == null || text.length() == 0) return null;
-        List<String> entries = userdict.get(text);
+        // read the field once, so that a reload cannot change the userdict halfway
+        IndexedUserdict dict = indexedUserdict;
+        if (dict == null || text == null || text.length() == 0) return null;
+        String transcr = dict.lookup(text, pos);
         // If entry is not found directly, try the following changes:
         // - lowercase the word
         // - all lowercase but first uppercase
-        if (entries  == null) {
+        // (Devanagari has no case, so for most words these are the same)
+        if (transcr == null && hasCase(text)) {
             text = text.toLowerCase(getLocale());
-            entries = userdict.get(text);
-         }
-         if (entries == null) {
-             text = text.substring(0,1).toUpperCase(getLocale()) + text.substring(1);
-             entries = userdict.get(text);
-         }
-         
-         if (entries == null) return null;
-
-         String transcr = null;
-         for (String entry : entries) {
-             String[] parts = entry.split("\\|");
-             transcr = parts[0];
-             if (parts.length > 1 && pos != null) {
-                 StringTokenizer tokenizer = new StringTokenizer(entry);
-                 while (tokenizer.hasMoreTokens()) {
-                     String onePos = tokenizer.nextToken();
-                     if (pos.equals(onePos)) return transcr; // found
-                 }
-             }
-         }
-         // no match of POS: return last entry
-         return transcr;
+            transcr = dict.lookup(text, pos);
+            if (transcr == null) {
+                text = text.substring(0,1).toUpperCase(getLocale()) + text.substring(1);
+                transcr = dict.lookup(text, pos);
+            }
+        }
+        return transcr;
     }    
+
+    /**
+     * How a word is written, as far as the choice of transcription method goes.
+     */
+    enum Script {
+        /** Devanagari letters, and no others */
+        DEVANAGARI,
+        /** no Devanagari, e.g. English words and acronyms in Latin script */
+        OTHER,
+        /** Devanagari and other letters or digits, e.g. "WhatsAppपर" */
+        MIXED
+    }
+
+    /**
+     * Classify a word by the scripts of its characters. Characters that
+     * are neither letters nor digits, such as punctuation, do not count.
+     * @param text
+     * @return the script of the word
+     */
+    static Script scriptOf(String text)
+    {
+        boolean devanagari = false;
+        boolean other = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isDevanagari(c)) {
+                devanagari = true;
+            } else if (c < 0x80) {
+                other |= (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+            } else {
+                other |= Character.isLetterOrDigit(c) || Character.isHighSurrogate(c);
+            }
+        }
+        if (devanagari) {
+            return other ? Script.MIXED : Script.DEVANAGARI;
+        }
+        return Script.OTHER;
+    }
+
+    private static boolean isDevanagari(char c)
+    {
+        return c >= '\u0900' && c <= '\u097F';
+    }
+
+    /**
+     * Whether case conversion may change the text.
+     * @param text
+     * @return false if the text contains no letters with case
+     */
+    static boolean hasCase(String text)
+    {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                    return true;
+                }
+            } else if (Character.toLowerCase(c) != c || Character.toUpperCase(c) != c
+                    || Character.isHighSurrogate(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
     
 
     
@@ -268,43 +1171,104 @@ public class JPhonemiser extends InternalModule
      */
     protected Map<String, List<String>> readLexicon(String lexiconFilename)
     throws IOException
+    {
+        return readLexicon(lexiconFilename, null);
+    }
+
+    /**
+     * Read a lexicon.
+     * @param lexiconFilename
+     * @param errors if not null, broken entries are reported here
+     * instead of being logged
+     * @return
+     * @see #readLexicon(String)
+     */
+    private Map<String, List<String>> readLexicon(String lexiconFilename, List<String> errors)
+    throws IOException
     {
         String line;
         Map<String,List<String>> fLexicon = new HashMap<String,List<String>>();
 
         BufferedReader lexiconFile = new BufferedReader(new InputStreamReader(new FileInputStream(lexiconFilename), "UTF-8"));
-        while ((line = lexiconFile.readLine()) != null) {
-            // Ignore empty lines and comments:
-            if (line.trim().equals("") || line.startsWith("#"))
-                continue;
+        try {
+            while ((line = lexiconFile.readLine()) != null) {
+                // Ignore empty lines and comments:
+                String[] lineParts;
+                try {
+                    lineParts = UserdictCompiler.parseLine(line);
+                } catch (RuntimeException re) {
+                    if (errors == null)
+                        throw re;
+                    errors.add("Lexicon '"+lexiconFilename+"': malformed line '"+line+"'");
+                    continue;
+                }
+                if (lineParts == null)
+                    continue;
 
-            String[] lineParts = line.split("\\s*\\|\\s*");
-            String graphStr = lineParts[0];
-            String phonStr = lineParts[1];
-            try {
-                allophoneSet.splitIntoAllophones(phonStr);
-            } catch (RuntimeException re) {
-                logger.warn("Lexicon '"+lexiconFilename+"': invalid entry for '"+graphStr+"'", re);
-            }
-            String phonPosStr = phonStr;
-            if (lineParts.length > 2){
-                String pos = lineParts[2];
-                if (!pos.trim().equals(""))
-                    phonPosStr += "|" + pos;
-            }
+                String graphStr = lineParts[0];
+                String phonStr = lineParts[1];
+                checkTranscription(lexiconFilename, graphStr, phonStr, errors);
+                String phonPosStr = phonStr;
+                if (lineParts[2] != null){
+                    phonPosStr += "|" + lineParts[2];
+                }
 
-            List<String> transcriptions = fLexicon.get(graphStr);
-            if  (null == transcriptions) {
-                transcriptions = new ArrayList<String>();
-                fLexicon.put(graphStr, transcriptions);
+                List<String> transcriptions = fLexicon.get(graphStr);
+                if  (null == transcriptions) {
+                    transcriptions = new ArrayList<String>();
+                    fLexicon.put(graphStr, transcriptions);
+                }
+                transcriptions.add(phonPosStr);
             }
-            transcriptions.add(phonPosStr);
+        } finally {
+            lexiconFile.close();
         }
-        lexiconFile.close();
         return fLexicon; 
     }
 
+    /**
+     * Check that a transcription consists of phones of the allophone set.
+     * @param lexiconFilename the file the entry comes from
+     * @param graphStr
+     * @param phonStr
+     * @param errors if not null, an invalid entry is reported here
+     * instead of being logged
+     */
+    private void checkTranscription(String lexiconFilename, String graphStr, String phonStr, List<String> errors)
+    {
+        try {
+            allophoneSet.splitIntoAllophones(phonStr);
+        } catch (RuntimeException re) {
+            if (errors != null) {
+                errors.add("Lexicon '"+lexiconFilename+"': invalid entry for '"+graphStr+"': "+re.getMessage());
+            } else {
+                logger.warn("Lexicon '"+lexiconFilename+"': invalid entry for '"+graphStr+"'", re);
+            }
+        }
+    }
+
     
+    /**
+     * A compiled userdict is used if it exists and is not older than the
+     * text userdict it was compiled from.
+     */
+    private boolean isUsable(String compiledFilename, String textFilename)
+    {
+        File compiled = new File(compiledFilename);
+        if (!compiled.exists()) {
+            return false;
+        }
+        if (textFilename != null) {
+            File text = new File(textFilename);
+            if (text.exists() && text.lastModified() > compiled.lastModified()) {
+                logger.warn("Compiled user dictionary '"+compiledFilename+"' is older than '"+textFilename
+                        +"'; reading the text file instead. Recompile it with "+UserdictCompiler.class.getName()+".");
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected void setPh(Element t, String ph)
     {
         if (!t.getTagName().equals(MaryXML.TOKEN))
@@ -312,14 +1276,36 @@ public class JPhonemiser extends InternalModule
                                    "Only t elements allowed, received " +
                                    t.getTagName() + ".");
         if (t.hasAttribute("ph")) {
-            String prevPh = t.getAttribute("ph");
-            // In previous sampa, replace star with sampa:
-            String newPh = prevPh.replaceFirst("\\*", ph);
-            t.setAttribute("ph", newPh);
+            t.setAttribute("ph", mergePh(t.getAttribute("ph"), ph));
         } else {
             t.setAttribute("ph", ph);
         }
     }
 
-}
+    /**
+     * In previous sampa, replace star with sampa
+     * @param prevPh the transcription given in the input
+     * @param ph the new transcription
+     * @return the transcription to use
+     */
+    static String mergePh(String prevPh, String ph)
+    {
+        return prevPh.replaceFirst("\\*", ph);
+    }
+
 
+    /**
+     * An allophone set together with the time it took to load, so that
+     * it is looked up only once while constructing the module.
+     */
+    private static final class TimedAllophoneSet {
+        final AllophoneSet allophoneSet;
+        final long millis;
+
+        TimedAllophoneSet(String allophonesProperty) throws MaryConfigurationException {
+            long start = System.currentTimeMillis();
+            allophoneSet = MaryRuntimeUtils.needAllophoneSet(allophonesProperty);
+            millis = System.currentTimeMillis() - start;
+        }
+    }
+}
@@ -42,6 +42,20 @@ public class JTokeniser extends marytts.modules.JTokeniser {
                 new Locale("hi"));
     }
 
+    /**
+     * Loads the jtok resources (jtok/hi) and logs how long that takes, as
+     * this module's share of the cold start; TokeniserStartupBenchmark
+     * measures the same.
+     */
+    @Override
+    public void startup() throws Exception
+    {
+        long start = System.currentTimeMillis();
+        super.startup();
+        logger.info("Loaded tokeniser resources for '" + getLocale() + "' in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
 	/*public MaryData process(MaryData d) throws Exception
 	{
 		MaryData result = super.process(d);
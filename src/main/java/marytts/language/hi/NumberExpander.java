@@ -0,0 +1,487 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+/**
+ * Expands numeric tokens into Hindi words: cardinal numbers in the
+ * Indian system (hazaar, lakh, crore), decimals, ordinals such as
+ * "5वाँ", percentages, rupee amounts and dates. Devanagari digits
+ * (U+0966 to U+096F) are read like ASCII digits. Commas that do not
+ * group the digits of one number, as in "1,2,3", separate numbers
+ * that are read one after the other.
+ *
+ * Number words from 0 to 99 are irregular in Hindi and come from a
+ * table; larger numbers are put together from those and the group
+ * words, one table lookup per group of digits.
+ */
+public class NumberExpander {
+
+    private static final String[] NUMBERS = {
+        "शून्य", "एक", "दो", "तीन", "चार", "पाँच", "छह", "सात", "आठ", "नौ",
+        "दस", "ग्यारह", "बारह", "तेरह", "चौदह", "पंद्रह", "सोलह", "सत्रह", "अठारह", "उन्नीस",
+        "बीस", "इक्कीस", "बाईस", "तेईस", "चौबीस", "पच्चीस", "छब्बीस", "सत्ताईस", "अट्ठाईस", "उनतीस",
+        "तीस", "इकतीस", "बत्तीस", "तैंतीस", "चौंतीस", "पैंतीस", "छत्तीस", "सैंतीस", "अड़तीस", "उनतालीस",
+        "चालीस", "इकतालीस", "बयालीस", "तैंतालीस", "चवालीस", "पैंतालीस", "छियालीस", "सैंतालीस", "अड़तालीस", "उनचास",
+        "पचास", "इक्यावन", "बावन", "तिरेपन", "चौवन", "पचपन", "छप्पन", "सत्तावन", "अट्ठावन", "उनसठ",
+        "साठ", "इकसठ", "बासठ", "तिरसठ", "चौंसठ", "पैंसठ", "छियासठ", "सड़सठ", "अड़सठ", "उनहत्तर",
+        "सत्तर", "इकहत्तर", "बहत्तर", "तिहत्तर", "चौहत्तर", "पचहत्तर", "छिहत्तर", "सतहत्तर", "अठहत्तर", "उनासी",
+        "अस्सी", "इक्यासी", "बयासी", "तिरासी", "चौरासी", "पचासी", "छियासी", "सत्तासी", "अट्ठासी", "नवासी",
+        "नब्बे", "इक्यानवे", "बानवे", "तिरानवे", "चौरानवे", "पंचानवे", "छियानवे", "सत्तानवे", "अट्ठानवे", "निन्यानवे"
+    };
+
+    private static final String HUNDRED = "सौ";
+    private static final String THOUSAND = "हज़ार";
+    private static final String LAKH = "लाख";
+    private static final String CRORE = "करोड़";
+
+    private static final String[] MONTHS = {
+        "जनवरी", "फ़रवरी", "मार्च", "अप्रैल", "मई", "जून",
+        "जुलाई", "अगस्त", "सितंबर", "अक्टूबर", "नवंबर", "दिसंबर"
+    };
+
+    /** Irregular ordinals 1 to 6, masculine, feminine and oblique; null where regular */
+    private static final String[][] ORDINALS = {
+        null,
+        { "पहला", "पहली", "पहले" },
+        { "दूसरा", "दूसरी", "दूसरे" },
+        { "तीसरा", "तीसरी", "तीसरे" },
+        { "चौथा", "चौथी", "चौथे" },
+        null,
+        { "छठा", "छठी", "छठे" }
+    };
+    /** Regular ordinal endings: masculine, feminine and oblique */
+    private static final String[] ORDINAL_ENDINGS = { "वाँ", "वीं", "वें" };
+
+    private static final String POINT = "दशमलव";
+    private static final String MINUS = "ऋण";
+    private static final String PERCENT = "प्रतिशत";
+    private static final String RUPEE = "रुपया";
+    private static final String RUPEES = "रुपये";
+    private static final String PAISE = "पैसे";
+
+    /** Longer digit strings are read digit by digit */
+    private static final int MAX_DIGITS = 15;
+
+    /**
+     * Expand a token.
+     * @param token
+     * @return the token in words, or null if it is not a number, amount, ordinal or date
+     */
+    public String expand(String token) {
+        String s = asciiDigits(token);
+        if (s == null) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder();
+        int n = s.length();
+        boolean done;
+        if (s.startsWith("₹")) {
+            done = appendAmount(s, 1, n, out);
+        } else if (s.startsWith("रु.") || s.startsWith("Rs.")) {
+            done = appendAmount(s, 3, n, out);
+        } else if (n > 1 && s.charAt(n - 1) == '%') {
+            done = appendNumber(s, 0, n - 1, out);
+            if (done) {
+                out.append(' ').append(PERCENT);
+            }
+        } else {
+            done = appendDate(s, out) || appendOrdinal(s, out) || appendNumber(s, 0, n, out)
+                    || appendList(s, out);
+        }
+        return done ? out.toString() : null;
+    }
+
+    /**
+     * Expand a plain number, as after a separate currency symbol.
+     * @param token
+     * @return the number in words, or null if the token is not a number
+     */
+    public String expandNumber(String token) {
+        String s = asciiDigits(token);
+        if (s == null) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder();
+        return appendNumber(s, 0, s.length(), out) ? out.toString() : null;
+    }
+
+    /**
+     * Expand a rupee amount given without the currency symbol.
+     * @param token
+     * @return the amount in words, or null if the token is not a number
+     */
+    public String expandAmount(String token) {
+        String s = asciiDigits(token);
+        if (s == null) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder();
+        return appendAmount(s, 0, s.length(), out) ? out.toString() : null;
+    }
+
+    /**
+     * The token with Devanagari digits replaced by ASCII digits.
+     * @return the token, or null if it has no digits at all
+     */
+    static String asciiDigits(String token) {
+        char[] chars = null;
+        boolean hasDigit = false;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= '०' && c <= '९') {
+                if (chars == null) {
+                    chars = token.toCharArray();
+                }
+                chars[i] = (char) ('0' + (c - '०'));
+                hasDigit = true;
+            } else if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            }
+        }
+        if (!hasDigit) {
+            return null;
+        }
+        return chars == null ? token : new String(chars);
+    }
+
+    /**
+     * Append an integer in words.
+     * @param n a number not below zero
+     * @param out
+     */
+    public static void appendInteger(long n, StringBuilder out) {
+        if (n < 100) {
+            out.append(NUMBERS[(int) n]);
+            return;
+        }
+        int start = out.length();
+        long crore = n / 10000000;
+        int rest = (int) (n % 10000000);
+        if (crore > 0) {
+            appendInteger(crore, out);
+            out.append(' ').append(CRORE);
+        }
+        appendGroup(rest / 100000, LAKH, start, out);
+        appendGroup(rest / 1000 % 100, THOUSAND, start, out);
+        appendGroup(rest / 100 % 10, HUNDRED, start, out);
+        appendGroup(rest % 100, null, start, out);
+    }
+
+    private static void appendGroup(int value, String word, int start, StringBuilder out) {
+        if (value == 0) {
+            return;
+        }
+        if (out.length() > start) {
+            out.append(' ');
+        }
+        out.append(NUMBERS[value]);
+        if (word != null) {
+            out.append(' ').append(word);
+        }
+    }
+
+    /**
+     * A number: optional sign, digits with optional grouping commas,
+     * optional decimal part. The commas must group the digits either in
+     * the Indian way (1,23,45,678: three digits last, two in every other
+     * group) or in the Western way (12,345,678: three in every group but
+     * the first).
+     */
+    private boolean appendNumber(String s, int from, int to, StringBuilder out) {
+        int start = out.length();
+        int i = from;
+        if (i < to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            if (s.charAt(i) == '-') {
+                out.append(MINUS).append(' ');
+            }
+            i++;
+        }
+        int intStart = i;
+        int digits = 0;
+        long value = 0;
+        int commas = 0;
+        int firstGroup = 0;
+        int group = 0;
+        boolean indian = true;
+        boolean western = true;
+        while (i < to) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits < MAX_DIGITS) {
+                    value = value * 10 + (c - '0');
+                }
+                digits++;
+                group++;
+            } else if (c == ',' && digits > 0 && i + 1 < to && isDigit(s.charAt(i + 1))) {
+                // grouping comma
+                if (commas == 0) {
+                    firstGroup = group;
+                } else {
+                    indian &= group == 2;
+                    western &= group == 3;
+                }
+                commas++;
+                group = 0;
+            } else {
+                break;
+            }
+            i++;
+        }
+        if (commas > 0) {
+            indian &= firstGroup <= 2 && group == 3;
+            western &= firstGroup <= 3 && group == 3;
+            if (!indian && !western) {
+                out.setLength(start);
+                return false;
+            }
+        }
+        int intEnd = i;
+        int fracStart = -1;
+        if (i < to && s.charAt(i) == '.' && i + 1 < to) {
+            fracStart = ++i;
+            while (i < to && isDigit(s.charAt(i))) {
+                i++;
+            }
+        }
+        if (digits == 0 || i != to || (fracStart >= 0 && fracStart == to)) {
+            out.setLength(start);
+            return false;
+        }
+        if (digits > MAX_DIGITS || (digits > 1 && s.charAt(intStart) == '0')) {
+            // e.g. phone numbers
+            appendDigits(s, intStart, intEnd, out);
+        } else {
+            appendInteger(value, out);
+        }
+        if (fracStart >= 0) {
+            out.append(' ').append(POINT).append(' ');
+            appendDigits(s, fracStart, to, out);
+        }
+        return true;
+    }
+
+    /**
+     * Numbers separated by commas that do not group digits, e.g. "1,2,3",
+     * each read on its own.
+     */
+    private boolean appendList(String s, StringBuilder out) {
+        if (s.indexOf(',') < 0) {
+            return false;
+        }
+        int start = out.length();
+        int from = 0;
+        while (from <= s.length()) {
+            int comma = s.indexOf(',', from);
+            int to = comma < 0 ? s.length() : comma;
+            if (out.length() > start) {
+                out.append(' ');
+            }
+            if (to == from || !appendNumber(s, from, to, out)) {
+                out.setLength(start);
+                return false;
+            }
+            from = to + 1;
+        }
+        return true;
+    }
+
+    private static void appendDigits(String s, int from, int to, StringBuilder out) {
+        boolean first = true;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (isDigit(c)) {
+                if (!first) {
+                    out.append(' ');
+                }
+                out.append(NUMBERS[c - '0']);
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * A rupee amount, with paise if there are one or two decimals.
+     */
+    private boolean appendAmount(String s, int from, int to, StringBuilder out) {
+        while (from < to && s.charAt(from) == ' ') {
+            from++;
+        }
+        int point = s.indexOf('.', from);
+        if (point < 0 || point >= to || to - point - 1 > 2) {
+            if (!appendNumber(s, from, to, out)) {
+                return false;
+            }
+            boolean one = to - from == 1 && s.charAt(from) == '1';
+            out.append(' ').append(one ? RUPEE : RUPEES);
+            return true;
+        }
+        int start = out.length();
+        if (!appendNumber(s, from, point, out)) {
+            return false;
+        }
+        int paise = 0;
+        for (int i = point + 1; i < point + 3; i++) {
+            char c = i < to ? s.charAt(i) : '0';
+            if (!isDigit(c)) {
+                out.setLength(start);
+                return false;
+            }
+            paise = paise * 10 + (c - '0');
+        }
+        boolean one = point - from == 1 && s.charAt(from) == '1';
+        out.append(' ').append(one ? RUPEE : RUPEES);
+        if (paise > 0) {
+            out.append(' ').append(NUMBERS[paise]).append(' ').append(PAISE);
+        }
+        return true;
+    }
+
+    /**
+     * A date: day, month and year separated by the same '/', '-' or '.'
+     */
+    private boolean appendDate(String s, StringBuilder out) {
+        int n = s.length();
+        int first = indexOfSeparator(s, 0);
+        if (first < 1 || first > 2) {
+            return false;
+        }
+        char separator = s.charAt(first);
+        int second = s.indexOf(separator, first + 1);
+        if (second < first + 2 || second > first + 3) {
+            return false;
+        }
+        int yearDigits = n - second - 1;
+        if (yearDigits != 2 && yearDigits != 4) {
+            return false;
+        }
+        int day = parse(s, 0, first);
+        int month = parse(s, first + 1, second);
+        int year = parse(s, second + 1, n);
+        if (day < 1 || day > 31 || month < 1 || month > 12 || year < 0) {
+            return false;
+        }
+        out.append(NUMBERS[day]).append(' ').append(MONTHS[month - 1]).append(' ');
+        appendYear(year, out);
+        return true;
+    }
+
+    /**
+     * Years from 1100 to 1999 are read in hundreds ("unnees sau
+     * saintaalees"), others as cardinal numbers.
+     */
+    private static void appendYear(int year, StringBuilder out) {
+        if (year >= 1100 && year < 2000) {
+            out.append(NUMBERS[year / 100]).append(' ').append(HUNDRED);
+            if (year % 100 > 0) {
+                out.append(' ').append(NUMBERS[year % 100]);
+            }
+        } else {
+            appendInteger(year, out);
+        }
+    }
+
+    private static int indexOfSeparator(String s, int from) {
+        for (int i = from; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '/' || c == '-' || c == '.') {
+                return i;
+            }
+            if (!isDigit(c)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value of the digits, or -1 if there are other characters
+     */
+    private static int parse(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * An ordinal: digits followed by a Hindi ordinal ending, such as
+     * 1ला, 2री, 5वाँ or 21वीं.
+     */
+    private boolean appendOrdinal(String s, StringBuilder out) {
+        int digits = 0;
+        while (digits < s.length() && isDigit(s.charAt(digits))) {
+            digits++;
+        }
+        if (digits == 0 || digits == s.length() || digits > 9) {
+            return false;
+        }
+        int form = ordinalForm(s, digits);
+        if (form < 0) {
+            return false;
+        }
+        int value = parse(s, 0, digits);
+        if (value < ORDINALS.length && ORDINALS[value] != null) {
+            out.append(ORDINALS[value][form]);
+        } else {
+            appendInteger(value, out);
+            out.append(ORDINAL_ENDINGS[form]);
+        }
+        return true;
+    }
+
+    /**
+     * @return 0 for a masculine, 1 for a feminine and 2 for an oblique
+     * ordinal ending, or -1 if the rest of the string is not one
+     */
+    private static int ordinalForm(String s, int from) {
+        int end = s.length();
+        // nasalisation does not change the form
+        if (s.charAt(end - 1) == 'ँ' || s.charAt(end - 1) == 'ं') {
+            end--;
+        }
+        if (end - from != 2) {
+            return -1;
+        }
+        char consonant = s.charAt(from);
+        if (consonant != 'ल' && consonant != 'र' && consonant != 'थ' && consonant != 'ठ' && consonant != 'व') {
+            return -1;
+        }
+        switch (s.charAt(from + 1)) {
+        case 'ा':
+            return 0;
+        case 'ी':
+            return 1;
+        case 'े':
+            return 2;
+        default:
+            return -1;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import marytts.datatypes.MaryData;
+import marytts.datatypes.MaryDataType;
+import marytts.datatypes.MaryXML;
+import marytts.modules.InternalModule;
+import marytts.util.dom.MaryDomUtils;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.traversal.NodeIterator;
+
+/**
+ * Hindi tokens-to-words module: writes out numbers, ordinals,
+ * percentages, rupee amounts and dates in words, using
+ * {@link NumberExpander}. A token that expands into several words keeps
+ * them all as its text; the phonemiser transcribes them one by one.
+ */
+public class Preprocess extends InternalModule
+{
+    private static final String RUPEE_SIGN = "₹";
+    private static final String PERCENT_SIGN = "%";
+
+    private final NumberExpander expander = new NumberExpander();
+
+    public Preprocess()
+    {
+        super("Preprocess",
+              MaryDataType.TOKENS,
+              MaryDataType.WORDS,
+              new Locale("hi"));
+    }
+
+    public MaryData process(MaryData d)
+    throws Exception
+    {
+        Document doc = d.getDocument();
+        NodeIterator it = MaryDomUtils.createNodeIterator(doc, doc, MaryXML.TOKEN);
+        List<Element> tokens = new ArrayList<Element>();
+        Element t;
+        while ((t = (Element) it.nextNode()) != null) {
+            tokens.add(t);
+        }
+
+        for (int i = 0; i < tokens.size(); i++) {
+            t = tokens.get(i);
+            String text = MaryDomUtils.tokenText(t);
+            if (text == null || text.length() == 0) {
+                continue;
+            }
+            if (text.equals(RUPEE_SIGN)) {
+                // "₹ 500": the amount is read first, then the currency
+                String amount = i + 1 < tokens.size() ? expander.expandAmount(MaryDomUtils.tokenText(tokens.get(i + 1))) : null;
+                if (amount != null) {
+                    MaryDomUtils.setTokenText(tokens.get(i + 1), amount);
+                    t.getParentNode().removeChild(t);
+                    i++;
+                } else {
+                    MaryDomUtils.setTokenText(t, "रुपये");
+                }
+            } else if (text.equals(PERCENT_SIGN)) {
+                MaryDomUtils.setTokenText(t, "प्रतिशत");
+            } else {
+                String words = expander.expand(text);
+                if (words != null) {
+                    MaryDomUtils.setTokenText(t, words);
+                }
+            }
+        }
+
+        MaryData result = new MaryData(outputType(), d.getLocale());
+        result.setDocument(doc);
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package marytts.language.hi;
+
+import java.io.IOException;
+
+/**
+ * Transcribes the words that are not written in Devanagari, such as
+ * English words and acronyms in Latin script, for which the Hindi
+ * letter-to-sound rules have nothing to offer. An implementation might
+ * wrap the en_US lexicon and rules and map their phones to the Hindi
+ * allophone set.
+ *
+ * Implementations must be thread-safe. They are named in the property
+ * hi.secondary.class and need a public constructor without arguments,
+ * or they are set with {@link JPhonemiser#setSecondaryPhonemiser(SecondaryPhonemiser)}.
+ */
+public interface SecondaryPhonemiser {
+
+    /**
+     * @param text a word with no Devanagari in it
+     * @param pos the part-of-speech of the word, or null
+     * @return the transcription in the Hindi allophone set, or null if there is none
+     * @throws IOException
+     */
+    String phonemise(String text, String pos) throws IOException;
+}
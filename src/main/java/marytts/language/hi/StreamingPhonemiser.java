@@ -0,0 +1,228 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import marytts.datatypes.MaryXML;
+import marytts.language.hi.metrics.PhonemiserMetrics;
+
+/**
+ * Streaming alternative to {@link JPhonemiser#process(marytts.datatypes.MaryData)}
+ * for very large MaryXML documents.
+ *
+ * The input is read as a StAX event stream and written out event by
+ * event; only the events of the current token are held in memory, so
+ * memory use does not grow with the document. Each token gets the same
+ * ph and g2p_method attributes as on the DOM path, and all other events
+ * pass through unchanged. The output is flushed at the end of each
+ * sentence, so that a reader can start on it before the rest of the
+ * document is phonemised. Tokens are transcribed one at a time through
+ * {@link JPhonemiser#phonemise(String, String, StringBuilder)}, using its
+ * userdict, lexicon, rules and transcription cache.
+ */
+public class StreamingPhonemiser {
+
+    private static final QName PH = new QName("ph");
+    private static final QName G2P_METHOD = new QName("g2p_method");
+    private static final QName SOUNDS_LIKE = new QName("sounds_like");
+    private static final QName POS = new QName("pos");
+
+    private final JPhonemiser phonemiser;
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+    public StreamingPhonemiser(JPhonemiser phonemiser) {
+        this.phonemiser = phonemiser;
+        // one event per text node, as in the DOM
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    /**
+     * Phonemise a MaryXML document of type PARTSOFSPEECH.
+     * @param in the input document, in UTF-8 or with an encoding declaration
+     * @param out receives the PHONEMES document in UTF-8; not closed
+     * @throws XMLStreamException if the input is not well-formed
+     * @throws IOException
+     */
+    public void process(InputStream in, OutputStream out) throws XMLStreamException, IOException {
+        phonemiser.awaitDictionaries();
+        long start = System.nanoTime();
+        XMLEventReader reader = inputFactory.createXMLEventReader(in);
+        XMLEventWriter writer = outputFactory.createXMLEventWriter(out, "UTF-8");
+        PhonemiserMetrics metrics = phonemiser.getMetrics();
+        List<XMLEvent> token = new ArrayList<XMLEvent>();
+        StringBuilder text = new StringBuilder();
+        int depth = 0;
+        int words = 0;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (depth == 0) {
+                if (event.isStartElement() && isToken(event.asStartElement())) {
+                    token.add(event);
+                    depth = 1;
+                } else {
+                    writer.add(event);
+                    if (event.isEndElement() && isSentence(event.asEndElement().getName())) {
+                        // hand the finished sentence on without waiting for the rest
+                        writer.flush();
+                    }
+                }
+                continue;
+            }
+            token.add(event);
+            if (event.isCharacters()) {
+                // like MaryDomUtils.tokenText()
+                text.append(event.asCharacters().getData().trim());
+            } else if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+                if (depth == 0) {
+                    words += writeToken(token, text.toString(), writer, metrics);
+                    token.clear();
+                    text.setLength(0);
+                }
+            }
+        }
+        writer.flush();
+        writer.close();
+        reader.close();
+        if (metrics != null) {
+            metrics.recordDocument(System.nanoTime() - start, words);
+        }
+    }
+
+    private static boolean isToken(StartElement element) {
+        QName name = element.getName();
+        return MaryXML.TOKEN.equals(name.getLocalPart()) && "".equals(name.getPrefix());
+    }
+
+    private static boolean isSentence(QName name) {
+        return MaryXML.SENTENCE.equals(name.getLocalPart()) && "".equals(name.getPrefix());
+    }
+
+    /**
+     * Transcribe a token and write out its events.
+     * @param token the events from the start to the end of the token element
+     * @param tokenText the text within the token
+     * @return the number of words transcribed
+     */
+    private int writeToken(List<XMLEvent> token, String tokenText, XMLEventWriter writer, PhonemiserMetrics metrics)
+            throws XMLStreamException, IOException {
+        StartElement start = token.get(0).asStartElement();
+        String ph = value(start, PH);
+        String pos = value(start, POS);
+        String text = start.getAttributeByName(SOUNDS_LIKE) != null ? value(start, SOUNDS_LIKE) : tokenText;
+        int words = 0;
+
+        // Do not touch tokens for which a transcription is already
+        // given (exception: transcription contains a '*' character)
+        if (ph != null && !ph.contains("*")) {
+            if (metrics != null) {
+                metrics.countSkipped();
+            }
+        } else if ("$PUNCT".equals(pos)) {
+            if (metrics != null) {
+                metrics.countPunctuation();
+            }
+        } else if (text != null && !text.equals("")) {
+            // Each part of the text is transcribed separately
+            List<String> phones = new ArrayList<String>();
+            String g2pMethod = null;
+            StringTokenizer st = new StringTokenizer(text, " -");
+            while (st.hasMoreTokens()) {
+                StringBuilder helper = new StringBuilder();
+                String phon = phonemiser.phonemise(st.nextToken(), pos, helper);
+                phones.add(phon);
+                if (g2pMethod == null && phon != null) {
+                    g2pMethod = helper.toString();
+                }
+            }
+            words = phones.size();
+            String newPh = JPhonemiser.combineParts(phones);
+            if (newPh != null) {
+                if (ph != null) {
+                    newPh = JPhonemiser.mergePh(ph, newPh);
+                }
+                token.set(0, withTranscription(start, newPh, g2pMethod));
+                if (metrics != null) {
+                    metrics.countToken(g2pMethod);
+                }
+            }
+        }
+        for (XMLEvent event : token) {
+            writer.add(event);
+        }
+        return words;
+    }
+
+    private static String value(StartElement element, QName name) {
+        Attribute attribute = element.getAttributeByName(name);
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    /**
+     * A copy of the start element with its ph and g2p_method attributes
+     * set, replacing existing ones in place or adding them at the end.
+     */
+    private StartElement withTranscription(StartElement start, String ph, String g2pMethod) {
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        boolean hasPh = false;
+        boolean hasG2pMethod = false;
+        for (Iterator<?> it = start.getAttributes(); it.hasNext();) {
+            Attribute attribute = (Attribute) it.next();
+            if (attribute.getName().equals(PH)) {
+                attribute = eventFactory.createAttribute(PH, ph);
+                hasPh = true;
+            } else if (attribute.getName().equals(G2P_METHOD)) {
+                attribute = eventFactory.createAttribute(G2P_METHOD, g2pMethod);
+                hasG2pMethod = true;
+            }
+            attributes.add(attribute);
+        }
+        if (!hasPh) {
+            attributes.add(eventFactory.createAttribute(PH, ph));
+        }
+        if (!hasG2pMethod) {
+            attributes.add(eventFactory.createAttribute(G2P_METHOD, g2pMethod));
+        }
+        return eventFactory.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces());
+    }
+}
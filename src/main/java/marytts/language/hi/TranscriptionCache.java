@@ -0,0 +1,229 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded, thread-safe cache of word transcriptions, keyed on
+ * the graphemic form and the part-of-speech of a word.
+ *
+ * The cache is split into segments, each an access-ordered
+ * {@link LinkedHashMap} guarded by its own lock, so that threads
+ * phonemising different words rarely contend. Each segment evicts its
+ * least recently used entry when it is full.
+ *
+ * Every {@link #invalidate()} starts a new generation; entries computed
+ * against an older generation (e.g., before the userdict changed) are
+ * not stored.
+ */
+public class TranscriptionCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int maxSize;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of transcriptions held by the cache
+     */
+    public TranscriptionCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, got " + maxSize);
+        }
+        this.maxSize = maxSize;
+        int segmentCount = Math.min(SEGMENTS, Integer.highestOneBit(maxSize));
+        segments = new Segment[segmentCount];
+        int perSegment = (maxSize + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Look up the transcription of a word.
+     * @param graph the graphemic form of the word
+     * @param pos the part-of-speech, or null
+     * @return the cached transcription, or null if there is none
+     */
+    public Transcription get(String graph, String pos) {
+        Key key = new Key(graph, pos);
+        Segment segment = segmentFor(key);
+        Transcription result;
+        synchronized (segment) {
+            result = segment.get(key);
+        }
+        if (result == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Store the transcription of a word, unless the cache was invalidated
+     * since the given generation.
+     * @param graph the graphemic form of the word
+     * @param pos the part-of-speech, or null
+     * @param transcription
+     * @param generation the value of {@link #getGeneration()} before the transcription was computed
+     */
+    public void put(String graph, String pos, Transcription transcription, int generation) {
+        Key key = new Key(graph, pos);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            if (generation == this.generation.get()) {
+                segment.put(key, transcription);
+            }
+        }
+    }
+
+    /**
+     * The current generation, to be passed to {@link #put(String, String, Transcription, int)}.
+     * @return the current generation
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Remove all entries and start a new generation.
+     */
+    public void invalidate() {
+        // A put that saw the old generation holds its segment lock
+        // until it is done, so the clear below always comes after it.
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * A transcription together with the method that produced it.
+     */
+    public static final class Transcription {
+        private final String phones;
+        private final String g2pMethod;
+
+        public Transcription(String phones, String g2pMethod) {
+            this.phones = phones;
+            this.g2pMethod = g2pMethod;
+        }
+
+        public String getPhones() {
+            return phones;
+        }
+
+        public String getG2pMethod() {
+            return g2pMethod;
+        }
+    }
+
+    private static final class Key {
+        private final String graph;
+        private final String pos;
+        private final int hash;
+
+        Key(String graph, String pos) {
+            this.graph = graph;
+            this.pos = pos;
+            this.hash = 31 * graph.hashCode() + (pos == null ? 0 : pos.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && graph.equals(other.graph)
+                    && (pos == null ? other.pos == null : pos.equals(other.pos));
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Key, Transcription> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Transcription> eldest) {
+            if (size() > capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import marytts.exceptions.MaryConfigurationException;
+import marytts.modules.phonemiser.AllophoneSet;
+
+/**
+ * Offline compiler from the text userdict format read by
+ * {@link JPhonemiser} to the binary format of {@link CompiledUserdict}.
+ *
+ * Usage: <code>java marytts.language.hi.UserdictCompiler userdict-hi.txt userdict-hi.bin [allophones.xml]</code>
+ *
+ * The transcriptions are checked against the allophone set, by default
+ * the Hindi one, and the compiler stops at the first line that is
+ * malformed or has an invalid transcription.
+ */
+public class UserdictCompiler {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String ALLOPHONES = "/marytts/language/hi/lexicon/allophones.hi.xml";
+
+    private static final Comparator<byte[]> UTF8_ORDER = new Comparator<byte[]>() {
+        public int compare(byte[] a, byte[] b) {
+            return CompiledUserdict.compare(a, a.length, b, b.length);
+        }
+    };
+
+    /**
+     * Split one line of a text userdict. Lines have the format
+     *
+     * graphemestring | phonestring | optional-parts-of-speech
+     *
+     * @param line
+     * @return graphemes, normalised by {@link DevanagariNormaliser}, phones
+     * and parts-of-speech (null if none given), or null for empty lines and comments
+     * @throws IllegalArgumentException if the line has no phones
+     */
+    static String[] parseLine(String line) {
+        if (line.trim().equals("") || line.startsWith("#")) {
+            return null;
+        }
+        String[] lineParts = line.split("\\s*\\|\\s*");
+        if (lineParts.length < 2 || lineParts[1].trim().equals("")) {
+            throw new IllegalArgumentException("No transcription");
+        }
+        String pos = null;
+        if (lineParts.length > 2 && !lineParts[2].trim().equals("")) {
+            pos = lineParts[2];
+        }
+        return new String[] { DevanagariNormaliser.normalise(lineParts[0]), lineParts[1], pos };
+    }
+
+    /**
+     * Read a text userdict without validating the transcriptions.
+     * @param file
+     * @return map from graphemes to entries "phones" or "phones|pos"
+     * @throws IOException if the file cannot be read or has a malformed line
+     */
+    public static Map<String, List<String>> readText(File file) throws IOException {
+        return readText(file, null);
+    }
+
+    /**
+     * Read a text userdict.
+     * @param file
+     * @param allophones the allophone set the transcriptions must be
+     * valid in, or null to accept any
+     * @return map from graphemes to entries "phones" or "phones|pos"
+     * @throws IOException if the file cannot be read, or naming the line
+     * that is malformed or has an invalid transcription
+     */
+    public static Map<String, List<String>> readText(File file, AllophoneSet allophones) throws IOException {
+        Map<String, List<String>> userdict = new HashMap<String, List<String>>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String[] parts;
+                try {
+                    parts = parseLine(line);
+                    if (parts != null && allophones != null) {
+                        allophones.splitIntoAllophones(parts[1]);
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage() + ": '" + line + "'", e);
+                }
+                if (parts == null) {
+                    continue;
+                }
+                List<String> transcriptions = userdict.get(parts[0]);
+                if (transcriptions == null) {
+                    transcriptions = new ArrayList<String>();
+                    userdict.put(parts[0], transcriptions);
+                }
+                transcriptions.add(parts[2] == null ? parts[1] : parts[1] + "|" + parts[2]);
+            }
+        } finally {
+            in.close();
+        }
+        return userdict;
+    }
+
+    /**
+     * Write a userdict in the compiled format. The file is replaced
+     * atomically, so that a {@link CompiledUserdict} still open on the
+     * old file keeps reading the old entries.
+     * @param userdict map from graphemes to entries
+     * @param out the file to write
+     * @throws IOException
+     */
+    public static void compile(Map<String, List<String>> userdict, File out) throws IOException {
+        TreeMap<byte[], List<String>> sorted = new TreeMap<byte[], List<String>>(UTF8_ORDER);
+        for (Map.Entry<String, List<String>> e : userdict.entrySet()) {
+            sorted.put(e.getKey().getBytes(UTF8), e.getValue());
+        }
+
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        int[] blockOffsets = new int[(sorted.size() + CompiledUserdict.BLOCK_SIZE - 1) / CompiledUserdict.BLOCK_SIZE];
+        byte[] previous = new byte[0];
+        int i = 0;
+        for (Map.Entry<byte[], List<String>> e : sorted.entrySet()) {
+            byte[] key = e.getKey();
+            int shared = 0;
+            if (i % CompiledUserdict.BLOCK_SIZE == 0) {
+                blockOffsets[i / CompiledUserdict.BLOCK_SIZE] = CompiledUserdict.HEADER_SIZE + blocks.size();
+            } else {
+                int max = Math.min(previous.length, key.length);
+                while (shared < max && previous[shared] == key[shared]) {
+                    shared++;
+                }
+            }
+            writeVarint(blocks, shared);
+            writeVarint(blocks, key.length - shared);
+            blocks.write(key, shared, key.length - shared);
+            writeVarint(blocks, e.getValue().size());
+            for (String value : e.getValue()) {
+                byte[] bytes = value.getBytes(UTF8);
+                writeVarint(blocks, bytes.length);
+                blocks.write(bytes, 0, bytes.length);
+            }
+            previous = key;
+            i++;
+        }
+
+        // A live CompiledUserdict may have the target mapped: write a new
+        // file and move it into place, so that the mapping keeps the old one
+        File dir = out.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(out.getName(), ".tmp", dir);
+        boolean moved = false;
+        try {
+            write(sorted.size(), blockOffsets, blocks, new BloomFilter(userdict.keySet()), temp);
+            Files.move(temp.toPath(), out.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void write(int entryCount, int[] blockOffsets, ByteArrayOutputStream blocks, BloomFilter keys, File out)
+            throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)));
+        try {
+            dos.writeInt(CompiledUserdict.MAGIC);
+            dos.writeInt(CompiledUserdict.VERSION);
+            dos.writeInt(entryCount);
+            dos.writeInt(blockOffsets.length);
+            dos.writeInt(CompiledUserdict.HEADER_SIZE + blocks.size());
+            blocks.writeTo(dos);
+            for (int offset : blockOffsets) {
+                dos.writeInt(offset);
+            }
+            long[] bits = keys.toLongArray();
+            dos.writeInt(bits.length);
+            for (long word : bits) {
+                dos.writeLong(word);
+            }
+        } finally {
+            dos.close();
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public static void main(String[] args) throws IOException, MaryConfigurationException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: java " + UserdictCompiler.class.getName()
+                    + " userdict.txt userdict.bin [allophones.xml]");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        InputStream allophonesStream = args.length == 3 ? new FileInputStream(args[2])
+                : UserdictCompiler.class.getResourceAsStream(ALLOPHONES);
+        AllophoneSet allophones;
+        try {
+            allophones = AllophoneSet.getAllophoneSet(allophonesStream, args.length == 3 ? args[2] : ALLOPHONES);
+        } finally {
+            allophonesStream.close();
+        }
+        Map<String, List<String>> userdict;
+        try {
+            userdict = readText(new File(args[0]), allophones);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        compile(userdict, new File(args[1]));
+        System.out.println("Compiled " + userdict.size() + " entries into " + args[1] + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import marytts.util.MaryUtils;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Polls the userdict files for changes and reloads the userdict when
+ * they change.
+ *
+ * A reload builds a complete new snapshot in the polling thread and
+ * only then hands it to the {@link Target}, which publishes it with a
+ * single reference swap. A snapshot with broken entries is rejected and
+ * the last good one stays in use.
+ */
+public class UserdictReloader {
+
+    /**
+     * What is reloaded.
+     */
+    public interface Target {
+        /**
+         * Build a new userdict snapshot from the files.
+         * @param errors receives a description of each broken entry
+         * @return the snapshot, or null if there is no userdict file
+         * @throws IOException
+         */
+        Map<String, List<String>> loadUserdict(List<String> errors) throws IOException;
+
+        /**
+         * Start using the snapshot.
+         * @param userdict the snapshot, or null for none
+         */
+        void publishUserdict(Map<String, List<String>> userdict);
+    }
+
+    private static final Logger logger = MaryUtils.getLogger("UserdictReloader");
+
+    private final Target target;
+    private final File[] files;
+    private final long[] stamps;
+    private ScheduledExecutorService timer;
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastReloadMillis = -1;
+    private volatile int entryCount = -1;
+
+    /**
+     * @param target
+     * @param filenames the files to watch; null entries are ignored
+     */
+    public UserdictReloader(Target target, String... filenames) {
+        this.target = target;
+        List<File> watched = new ArrayList<File>();
+        for (String filename : filenames) {
+            if (filename != null) {
+                watched.add(new File(filename));
+            }
+        }
+        files = watched.toArray(new File[watched.size()]);
+        stamps = new long[2 * files.length];
+        readStamps(stamps);
+    }
+
+    /**
+     * Check the files every intervalSeconds in a background thread.
+     * @param intervalSeconds
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "userdict-reloader");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        timer.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    checkForChanges();
+                } catch (RuntimeException e) {
+                    logger.error("Checking user dictionary failed", e);
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * Reload the userdict if any of the files changed since the last check.
+     * @return true if a new snapshot was published
+     */
+    public synchronized boolean checkForChanges() {
+        long[] current = new long[stamps.length];
+        readStamps(current);
+        boolean changed = false;
+        for (int i = 0; i < stamps.length; i++) {
+            if (current[i] != stamps[i]) {
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+        // remember the files as they were before loading, so that a
+        // change during the load is picked up by the next check
+        System.arraycopy(current, 0, stamps, 0, stamps.length);
+        return reload();
+    }
+
+    /**
+     * Load a new snapshot and publish it, unless it has broken entries.
+     * @return true if a new snapshot was published
+     */
+    public synchronized boolean reload() {
+        long start = System.currentTimeMillis();
+        List<String> errors = new ArrayList<String>();
+        Map<String, List<String>> userdict;
+        try {
+            userdict = target.loadUserdict(errors);
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            logger.error("Reloading user dictionary failed; keeping the previous one", e);
+            return false;
+        }
+        if (!errors.isEmpty()) {
+            failures.incrementAndGet();
+            logger.error("User dictionary has " + errors.size() + " broken entries; keeping the previous one. First: "
+                    + errors.get(0));
+            return false;
+        }
+        target.publishUserdict(userdict);
+        lastReloadMillis = System.currentTimeMillis() - start;
+        entryCount = userdict == null ? 0 : userdict.size();
+        reloads.incrementAndGet();
+        logger.info("Reloaded user dictionary with " + entryCount + " entries in " + lastReloadMillis + " ms");
+        return true;
+    }
+
+    private void readStamps(long[] into) {
+        for (int i = 0; i < files.length; i++) {
+            into[2 * i] = files[i].lastModified();
+            into[2 * i + 1] = files[i].length();
+        }
+    }
+
+    public long getReloadCount() {
+        return reloads.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return how long the last successful reload took, or -1 if there was none
+     */
+    public long getLastReloadMillis() {
+        return lastReloadMillis;
+    }
+
+    /**
+     * @return the number of entries in the last reloaded snapshot, or -1 if there was none
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+}
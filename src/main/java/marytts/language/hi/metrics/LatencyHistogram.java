@@ -0,0 +1,113 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations with power-of-two buckets in microseconds:
+ * bucket 0 counts durations below 1 µs, bucket i those from
+ * 2<sup>i-1</sup> up to 2<sup>i</sup> µs. Percentiles are therefore
+ * only accurate to a factor of two, which is enough to see where time
+ * goes. Recording is striped like {@link StripedCounter}.
+ */
+public final class LatencyHistogram {
+
+    static final int BUCKETS = 36;
+    private static final int COUNT = BUCKETS;
+    private static final int SUM = BUCKETS + 1;
+    /** Longs per stripe, rounded up to whole cache lines */
+    private static final int ROW = 40;
+
+    private final AtomicLongArray cells = new AtomicLongArray(StripedCounter.STRIPES * ROW);
+
+    /**
+     * Record one duration.
+     * @param nanos
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Record count durations that took nanos altogether, e.g. the words
+     * of a batch, each as the average duration.
+     * @param nanos
+     * @param count
+     */
+    public void record(long nanos, int count) {
+        if (count <= 0) {
+            return;
+        }
+        int row = StripedCounter.stripe() * ROW;
+        cells.addAndGet(row + bucket(nanos / count), count);
+        cells.addAndGet(row + COUNT, count);
+        cells.addAndGet(row + SUM, nanos);
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public long getCount() {
+        return sum(COUNT);
+    }
+
+    public double getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : sum(SUM) / 1000.0 / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound in microseconds of the bucket that holds
+     * the percentile, or 0 if nothing was recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets[b] = sum(b);
+            count += buckets[b];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[b];
+            if (seen >= rank && buckets[b] > 0) {
+                return 1L << b;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    private long sum(int column) {
+        long sum = 0;
+        for (int i = 0; i < StripedCounter.STRIPES; i++) {
+            sum += cells.get(i * ROW + column);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.metrics;
+
+/**
+ * Hook for an external metrics system. An implementation is told about
+ * every counter and histogram once, when the module starts, and reads
+ * them whenever it reports; recording never goes through the registry.
+ *
+ * Implementations need a public no-argument constructor so they can be
+ * named in the configuration (e.g. <code>hi.metrics.registry</code>).
+ */
+public interface MetricsRegistry {
+
+    /**
+     * @param name a dotted name, e.g. "hi.phonemiser.tokens.rules"
+     * @param counter
+     */
+    void registerCounter(String name, StripedCounter counter);
+
+    /**
+     * @param name a dotted name, e.g. "hi.phonemiser.process.latency"
+     * @param histogram
+     */
+    void registerHistogram(String name, LatencyHistogram histogram);
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the Hindi phonemiser:
+ * <ul>
+ * <li>tokens transcribed per g2p_method (userdict, lexicon, rules);</li>
+ * <li>punctuation tokens and tokens skipped because they already had a transcription;</li>
+ * <li>process() latency per document, overall and for small (below
+ * {@value #SMALL_DOCUMENT} words), medium and large (from
+ * {@value #LARGE_DOCUMENT} words) documents;</li>
+ * <li>letter-to-sound latency per word.</li>
+ * </ul>
+ * All recording is done on striped counters and does not lock.
+ */
+public class PhonemiserMetrics implements PhonemiserMetricsMBean {
+
+    public static final int SMALL_DOCUMENT = 100;
+    public static final int LARGE_DOCUMENT = 2000;
+
+    private final String prefix;
+
+    final StripedCounter documents = new StripedCounter();
+    final StripedCounter tokensUserdict = new StripedCounter();
+    final StripedCounter tokensLexicon = new StripedCounter();
+    final StripedCounter tokensRules = new StripedCounter();
+    final StripedCounter tokensSecondary = new StripedCounter();
+    final StripedCounter tokensPunctuation = new StripedCounter();
+    final StripedCounter tokensSkipped = new StripedCounter();
+
+    final LatencyHistogram processLatency = new LatencyHistogram();
+    final LatencyHistogram smallDocumentLatency = new LatencyHistogram();
+    final LatencyHistogram mediumDocumentLatency = new LatencyHistogram();
+    final LatencyHistogram largeDocumentLatency = new LatencyHistogram();
+    final LatencyHistogram wordLatency = new LatencyHistogram();
+
+    private ObjectName objectName;
+
+    /**
+     * @param prefix prefix of the metric names, e.g. "hi.phonemiser"
+     */
+    public PhonemiserMetrics(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Count a token by the method that transcribed it.
+     * @param g2pMethod "userdict", "lexicon" or "rules"; others are ignored
+     */
+    public void countToken(String g2pMethod) {
+        if ("rules".equals(g2pMethod)) {
+            tokensRules.increment();
+        } else if ("userdict".equals(g2pMethod)) {
+            tokensUserdict.increment();
+        } else if ("lexicon".equals(g2pMethod)) {
+            tokensLexicon.increment();
+        } else if ("secondary".equals(g2pMethod)) {
+            tokensSecondary.increment();
+        }
+    }
+
+    public void countPunctuation() {
+        tokensPunctuation.increment();
+    }
+
+    public void countSkipped() {
+        tokensSkipped.increment();
+    }
+
+    /**
+     * @param nanos time spent in process()
+     * @param words the number of words in the document
+     */
+    public void recordDocument(long nanos, int words) {
+        documents.increment();
+        processLatency.record(nanos);
+        if (words < SMALL_DOCUMENT) {
+            smallDocumentLatency.record(nanos);
+        } else if (words < LARGE_DOCUMENT) {
+            mediumDocumentLatency.record(nanos);
+        } else {
+            largeDocumentLatency.record(nanos);
+        }
+    }
+
+    /**
+     * @param nanos time spent in the letter-to-sound rules
+     * @param words the number of words transcribed in that time
+     */
+    public void recordRules(long nanos, int words) {
+        wordLatency.record(nanos, words);
+    }
+
+    /**
+     * Tell a metrics registry about all counters and histograms.
+     * @param registry
+     */
+    public void registerWith(MetricsRegistry registry) {
+        registry.registerCounter(prefix + ".documents", documents);
+        registry.registerCounter(prefix + ".tokens.userdict", tokensUserdict);
+        registry.registerCounter(prefix + ".tokens.lexicon", tokensLexicon);
+        registry.registerCounter(prefix + ".tokens.rules", tokensRules);
+        registry.registerCounter(prefix + ".tokens.secondary", tokensSecondary);
+        registry.registerCounter(prefix + ".tokens.punctuation", tokensPunctuation);
+        registry.registerCounter(prefix + ".tokens.skipped", tokensSkipped);
+        registry.registerHistogram(prefix + ".process.latency", processLatency);
+        registry.registerHistogram(prefix + ".process.latency.small", smallDocumentLatency);
+        registry.registerHistogram(prefix + ".process.latency.medium", mediumDocumentLatency);
+        registry.registerHistogram(prefix + ".process.latency.large", largeDocumentLatency);
+        registry.registerHistogram(prefix + ".rules.latency", wordLatency);
+    }
+
+    /**
+     * Register this object with the platform MBean server.
+     * @param name the object name, e.g. "marytts:type=JPhonemiser,locale=hi"
+     * @throws JMException
+     */
+    public synchronized void registerMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        objectName = new ObjectName(name);
+        server.registerMBean(this, objectName);
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // already gone
+        }
+        objectName = null;
+    }
+
+    public long getDocuments() {
+        return documents.get();
+    }
+
+    public long getTokensUserdict() {
+        return tokensUserdict.get();
+    }
+
+    public long getTokensLexicon() {
+        return tokensLexicon.get();
+    }
+
+    public long getTokensRules() {
+        return tokensRules.get();
+    }
+
+    public long getTokensSecondary() {
+        return tokensSecondary.get();
+    }
+
+    public long getTokensPunctuation() {
+        return tokensPunctuation.get();
+    }
+
+    public long getTokensSkipped() {
+        return tokensSkipped.get();
+    }
+
+    public double getProcessLatencyMeanMicros() {
+        return processLatency.getMeanMicros();
+    }
+
+    public long getProcessLatencyP50Micros() {
+        return processLatency.getPercentileMicros(50);
+    }
+
+    public long getProcessLatencyP99Micros() {
+        return processLatency.getPercentileMicros(99);
+    }
+
+    public long getSmallDocumentLatencyP50Micros() {
+        return smallDocumentLatency.getPercentileMicros(50);
+    }
+
+    public long getMediumDocumentLatencyP50Micros() {
+        return mediumDocumentLatency.getPercentileMicros(50);
+    }
+
+    public long getLargeDocumentLatencyP50Micros() {
+        return largeDocumentLatency.getPercentileMicros(50);
+    }
+
+    public double getWordLatencyMeanMicros() {
+        return wordLatency.getMeanMicros();
+    }
+
+    public long getWordLatencyP50Micros() {
+        return wordLatency.getPercentileMicros(50);
+    }
+
+    public long getWordLatencyP99Micros() {
+        return wordLatency.getPercentileMicros(99);
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.metrics;
+
+/**
+ * JMX view of {@link PhonemiserMetrics}. Latencies are in microseconds.
+ */
+public interface PhonemiserMetricsMBean {
+
+    long getDocuments();
+
+    long getTokensUserdict();
+
+    long getTokensLexicon();
+
+    long getTokensRules();
+
+    long getTokensSecondary();
+
+    long getTokensPunctuation();
+
+    long getTokensSkipped();
+
+    double getProcessLatencyMeanMicros();
+
+    long getProcessLatencyP50Micros();
+
+    long getProcessLatencyP99Micros();
+
+    long getSmallDocumentLatencyP50Micros();
+
+    long getMediumDocumentLatencyP50Micros();
+
+    long getLargeDocumentLatencyP50Micros();
+
+    double getWordLatencyMeanMicros();
+
+    long getWordLatencyP50Micros();
+
+    long getWordLatencyP99Micros();
+}
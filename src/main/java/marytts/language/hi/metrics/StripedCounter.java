@@ -0,0 +1,70 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter for hot paths: each thread adds to one of several cells,
+ * each on its own cache line, so that threads rarely contend. Reading
+ * the value sums the cells.
+ */
+public final class StripedCounter {
+
+    /** Number of cells; a power of two */
+    static final int STRIPES = stripes();
+    /** Longs per cache line */
+    private static final int PAD = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    public void increment() {
+        cells.incrementAndGet(stripe() * PAD);
+    }
+
+    public void add(long x) {
+        cells.addAndGet(stripe() * PAD, x);
+    }
+
+    /**
+     * @return the sum of everything added so far
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * The cell of the current thread.
+     */
+    static int stripe() {
+        int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2;
+        return Math.min(64, n);
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.phonemiser;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Differential test of a letter-to-sound engine against a golden
+ * corpus, for checking that a change to the rules or their
+ * implementation leaves the transcriptions as they were, and how fast
+ * it is.
+ *
+ * The corpus has one word per line, followed by a tab and its
+ * transcription, as printed by {@link HindiLTS#main(String[])}; lines
+ * starting with '#' are ignored. Each mismatch is shown together with
+ * the decisions of the schwa rules of this {@link HindiLTS} on the word.
+ *
+ * Usage: <code>java marytts.language.hi.phonemiser.GoldenHarness golden.txt [engine-class [rounds]]</code>,
+ * where the engine class implements {@link Engine} and has a public
+ * constructor without arguments.
+ */
+public class GoldenHarness {
+
+    /** Mismatches shown in full by {@link Report#toString()} */
+    private static final int SHOWN_MISMATCHES = 20;
+
+    /**
+     * A letter-to-sound engine that can stand in for {@link HindiLTS}.
+     */
+    public interface Engine {
+        /**
+         * @param word
+         * @return the transcription of the word, as by {@link HindiLTS#phonemise(String)}
+         * @throws IOException
+         */
+        String phonemise(String word) throws IOException;
+    }
+
+    private final List<String> words;
+    private final List<String> expected;
+    private final HindiLTS rules;
+
+    /**
+     * @param golden the corpus; closed when read
+     * @param rules the rules used to explain mismatches
+     * @throws IOException
+     */
+    public GoldenHarness(InputStream golden, HindiLTS rules) throws IOException {
+        this.rules = rules;
+        words = new ArrayList<String>();
+        expected = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(golden, "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("#") || line.trim().equals("")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    throw new IOException("Invalid line in golden corpus: '" + line + "'");
+                }
+                words.add(line.substring(0, tab));
+                expected.add(line.substring(tab + 1));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param lts
+     * @return the engine phonemising with lts
+     */
+    public static Engine engineFor(final HindiLTS lts) {
+        return new Engine() {
+            public String phonemise(String word) throws IOException {
+                return lts.phonemise(word);
+            }
+        };
+    }
+
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Run the engine over the corpus. The first round is checked against
+     * the corpus; the speed is that of the fastest round.
+     * @param engine
+     * @param rounds the number of rounds, at least 1; more give the JIT compiler time to warm up
+     * @return the report
+     * @throws IOException
+     */
+    public Report run(Engine engine, int rounds) throws IOException {
+        List<Mismatch> mismatches = new ArrayList<Mismatch>();
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < Math.max(1, rounds); r++) {
+            String[] results = new String[words.size()];
+            long start = System.nanoTime();
+            for (int i = 0; i < results.length; i++) {
+                results[i] = engine.phonemise(words.get(i));
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            if (r == 0) {
+                for (int i = 0; i < results.length; i++) {
+                    if (!expected.get(i).equals(results[i])) {
+                        mismatches.add(new Mismatch(words.get(i), expected.get(i), results[i]));
+                    }
+                }
+            }
+        }
+        return new Report(words.size(), mismatches, best);
+    }
+
+    /**
+     * The outcome of {@link GoldenHarness#run(Engine, int)}.
+     */
+    public class Report {
+        private final int wordCount;
+        private final List<Mismatch> mismatches;
+        private final long nanos;
+
+        Report(int wordCount, List<Mismatch> mismatches, long nanos) {
+            this.wordCount = wordCount;
+            this.mismatches = Collections.unmodifiableList(mismatches);
+            this.nanos = nanos;
+        }
+
+        public int getWordCount() {
+            return wordCount;
+        }
+
+        public List<Mismatch> getMismatches() {
+            return mismatches;
+        }
+
+        public double getWordsPerSecond() {
+            return nanos > 0 ? wordCount * 1e9 / nanos : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * A summary line, followed by the first mismatches with the
+         * decisions of the rules on each word.
+         */
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%d words, %d mismatches, %.0f words/s", wordCount, mismatches.size(),
+                    getWordsPerSecond()));
+            for (int i = 0; i < mismatches.size() && i < SHOWN_MISMATCHES; i++) {
+                Mismatch m = mismatches.get(i);
+                out.append("\n\n").append(m.getWord())
+                        .append("\nexpected ").append(m.getExpected())
+                        .append("\nactual   ").append(m.getActual())
+                        .append('\n').append(rules.explain(m.getWord()));
+            }
+            if (mismatches.size() > SHOWN_MISMATCHES) {
+                out.append("\n\n... ").append(mismatches.size() - SHOWN_MISMATCHES).append(" more");
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * A word whose transcription differs from the corpus.
+     */
+    public static class Mismatch {
+        private final String word;
+        private final String expected;
+        private final String actual;
+
+        Mismatch(String word, String expected, String actual) {
+            this.word = word;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        public String getExpected() {
+            return expected;
+        }
+
+        public String getActual() {
+            return actual;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: java " + GoldenHarness.class.getName() + " golden.txt [engine-class [rounds]]");
+            System.exit(1);
+        }
+        HindiLTS lts = new HindiLTS(HindiLTS.class.getResourceAsStream("/marytts/language/hi/lexicon/UTF8toIT3.hi.list"));
+        Engine engine = args.length > 1 ? (Engine) Class.forName(args[1]).newInstance() : engineFor(lts);
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        GoldenHarness harness = new GoldenHarness(new FileInputStream(args[0]), lts);
+        Report report = harness.run(engine, rounds);
+        new PrintStream(System.out, true, "UTF-8").println(report);
+        System.exit(report.getMismatches().isEmpty() ? 0 : 1);
+    }
+}
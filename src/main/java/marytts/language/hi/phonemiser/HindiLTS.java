@@ -22,306 +22,440 @@ package marytts.language.hi.phonemiser;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+/**
+ * Rule-based letter-to-sound conversion for Hindi.
+ *
+ * The UTF-8 to IT3 map is read once in the constructor into dense
+ * tables of symbols, types and {@link PhoneFlags}, indexed by
+ * <code>codePoint - 0x0900</code>, and never modified
+ * afterwards; all per-word working state lives in a {@link WordContext}
+ * created for each call. A single instance can therefore be shared by
+ * any number of threads.
+ *
+ * Optionally, inflected forms share the transcription of their stem;
+ * see {@link #useStemCache(InputStream, int)}.
+ */
 public class HindiLTS {
 
-    private HashMap<String, String> UTF8toPhoneSymbols;
-    private HashMap<String, String> UTF8toPhoneTypes;
-    private ArrayList<String> listPhoneSym;
-    private ArrayList<String> listPhoneTypes;
-    private ArrayList<String> listConTypes;
-    
-    
-    private ArrayList<String> utf8CharList;
-    
+    /** First code point of the Devanagari block */
+    private static final int BLOCK_START = 0x0900;
+    /** Number of code points in the Devanagari block */
+    private static final int BLOCK_SIZE = 0x80;
+    /** Fewest distinct words handed to one task of a batch */
+    private static final int MIN_CHUNK = 256;
+
+    private final String[] phoneSymbols = new String[BLOCK_SIZE];
+    private final PhoneType[] phoneTypes = new PhoneType[BLOCK_SIZE];
+    private final int[] phoneFlags = new int[BLOCK_SIZE];
+    private volatile StemCache stemCache;
+
     /**
-     * TeluguLTS constructor
-     * @param utf8toit3map
+     * HindiLTS constructor
+     * @param utf8toit3mapStream
      * @throws IOException
      */
     public HindiLTS(InputStream utf8toit3mapStream) throws IOException{
-        this.loadPhoneSymbolsAndTypes(utf8toit3mapStream);
+        Arrays.fill(phoneTypes, PhoneType.UNKNOWN);
+        loadPhoneSymbolsAndTypes(utf8toit3mapStream);
     }
-  
-    public String phonemise(String line) throws IOException {
-    	
-    	String[] words = line.split("\\s+");
-    	String results = "";
-    	for ( int i=0; i<words.length; i++ ) {
-    		//System.out.println(words[i]+" --> "+this.phonemise(words[i].trim()));
-    		results += this.phonemiseWord(words[i].trim()) + " ";
-    	}
-    	
-    	return results.trim();
-    }
-    
-    private String phonemiseWord(String word) throws IOException
-    {
-    	//word = word.trim();
-        utf8CharList = readUTF8String(word);
-        listPhoneSym = new ArrayList<String>();
-        listPhoneTypes = new ArrayList<String>();
-        listConTypes = new ArrayList<String>();
-        
-        Iterator<String> listrun = utf8CharList.iterator();
-        while(listrun.hasNext())
-        {
-            String utf8Char    = listrun.next();
-            String phoneSymbol = UTF8toPhoneSymbols.get(utf8Char);
-            String phoneType   = UTF8toPhoneTypes.get(utf8Char);
-            if(phoneSymbol == null) phoneSymbol = getAsciiChar(utf8Char);
-            if(phoneType == null) phoneType = "#";
-            listPhoneSym.add(phoneSymbol);
-            listPhoneTypes.add(phoneType);
-            if ("CON".endsWith(phoneType)) {
-            	listConTypes.add("U");
-            	//System.out.println(utf8Char+" "+phoneSymbol+" "+phoneType+ " U");
-            } else {
-            	listConTypes.add("#");
-            	//System.out.println(utf8Char+" "+phoneSymbol+" "+phoneType+" #");
+
+    /**
+     * Share transcriptions between the inflected forms of a stem. The
+     * transcriptions are the same as without, only fewer words need a
+     * full run of the rules.
+     * @param suffixTable the inflectional suffixes, one per line; empty
+     * lines and lines starting with '#' are ignored
+     * @param maxSize the most stems, and the most transcriptions of
+     * stem endings with a suffix, to keep
+     * @throws IOException if the table cannot be read, or a suffix has
+     * a character missing from the UTF-8 to IT3 map or has no vowel sign
+     */
+    public void useStemCache(InputStream suffixTable, int maxSize) throws IOException {
+        List<String> suffixes = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(suffixTable, "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                // the vowel makes the syllable boundaries of the stem independent of the suffix
+                boolean hasVowel = false;
+                for (int i = 0; i < line.length(); i++) {
+                    PhoneType type = getPhoneType(line.charAt(i));
+                    if (type == PhoneType.UNKNOWN) {
+                        throw new IOException("Suffix '" + line + "' has a character missing from the UTF-8 to IT3 map");
+                    }
+                    hasVowel |= type == PhoneType.VOW;
+                }
+                if (!hasVowel) {
+                    throw new IOException("Suffix '" + line + "' has no vowel");
+                }
+                suffixes.add(line);
             }
-            
+        } finally {
+            in.close();
         }
-        
-        removeUnknownSymbols(); 
-        //printArrayList(listPhoneSym);
-        //printArrayList(listPhoneTypes);
-        //printArrayList(listConTypes);
-        schwaHandler();
-        //printArrayList(listPhoneSym);
-        removeHal();
-        syllabify();
-        putStressMark();
-        
-        return getStringfromArrayList(listPhoneSym);
+        stemCache = new StemCache(suffixes, maxSize);
     }
-    
+
     /**
-     * Add stress mark on first syllable
-     * @return
+     * Phonemise each whitespace-separated word of the line.
+     * @param line
+     * @return the transcriptions of the words, separated by spaces
+     * @throws IOException
      */
-    private ArrayList<String> putStressMark() {
-        listPhoneSym.add(0,"'");
-        return listPhoneSym;
+    public String phonemise(String line) throws IOException {
+        return phonemiseLine(line, new WordContext(line.length() + 8), new StringBuilder());
     }
 
     /**
-     * Add syllable symbols at proper places
+     * Phonemise a batch of words. The result is the same as calling
+     * {@link #phonemise(String)} for each of them, but the working
+     * buffers are reused across words and a word that occurs several
+     * times in the batch is only transcribed once.
+     * @param words
+     * @return the transcriptions, in the order of the words
+     * @throws IOException
+     */
+    public List<String> phonemise(Collection<String> words) throws IOException {
+        return phonemise(words, null);
+    }
+
+    /**
+     * Phonemise a batch of words, spreading the distinct words over the
+     * threads of a pool if one is given.
+     * @param words
+     * @param pool the pool to run on, or null to phonemise in the calling thread
+     * @return the transcriptions, in the order of the words
+     * @throws IOException
+     * @see #phonemise(Collection)
      */
-    private void syllabify() {
-    
-        for(int i=0; i<listPhoneTypes.size(); i++){
-            if(isVowel(i)){
-                boolean isVowelLater  = isVowelLater(i);
-                boolean isNextSemiCon = isNextSemiConsonant(i);
-                if(isVowelLater){
-                    if( isNextSemiCon ) {
-                        listPhoneSym.add(i+2,"-");
-                        listPhoneTypes.add(i+2,"SYM");
+    public List<String> phonemise(Collection<String> words, ExecutorService pool) throws IOException {
+        // distinct words in order of first occurrence, and for each word its index among them
+        Map<String, Integer> index = new HashMap<String, Integer>();
+        final List<String> distinct = new ArrayList<String>();
+        int[] slots = new int[words.size()];
+        int n = 0;
+        for (String word : words) {
+            Integer slot = index.get(word);
+            if (slot == null) {
+                slot = distinct.size();
+                index.put(word, slot);
+                distinct.add(word);
+            }
+            slots[n++] = slot;
+        }
+
+        final String[] transcriptions = new String[distinct.size()];
+        int chunks = pool == null ? 1 : Math.min(4 * Runtime.getRuntime().availableProcessors(),
+                (distinct.size() + MIN_CHUNK - 1) / MIN_CHUNK);
+        if (chunks <= 1) {
+            phonemiseRange(distinct, transcriptions, 0, distinct.size());
+        } else {
+            List<Future<?>> futures = new ArrayList<Future<?>>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                final int from = (int) ((long) distinct.size() * c / chunks);
+                final int to = (int) ((long) distinct.size() * (c + 1) / chunks);
+                futures.add(pool.submit(new Callable<Void>() {
+                    public Void call() throws IOException {
+                        phonemiseRange(distinct, transcriptions, from, to);
+                        return null;
                     }
-                    else {
-                        listPhoneSym.add(i+1,"-");
-                        listPhoneTypes.add(i+1,"SYM");
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while phonemising batch");
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
                     }
+                    throw new IOException(cause);
                 }
             }
         }
+
+        List<String> result = new ArrayList<String>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(transcriptions[slots[i]]);
+        }
+        return result;
     }
-    
-    /**
-     * Check whether the character is Vowel or not
-     * @param pos
-     * @return
-     */
-    private boolean isVowel(int pos){
-        if(listPhoneTypes.get(pos).equals("VOW")) {
-                return true;
+
+    private void phonemiseRange(List<String> words, String[] transcriptions, int from, int to) throws IOException {
+        WordContext w = new WordContext(32);
+        StringBuilder out = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            transcriptions[i] = phonemiseLine(words.get(i), w, out);
         }
-        return false;    
     }
-    
-    /**
-     * Check whether the word has vowels after given position
-     * @param pos
-     * @return
-     */
-    private boolean isVowelLater(int pos){
-        for(int i=(pos+1); i<listPhoneTypes.size(); i++){
-            if(listPhoneTypes.get(i).equals("VOW")) {
-                return true;
-            }
+
+    private String phonemiseLine(String line, WordContext w, StringBuilder out) throws IOException {
+        out.setLength(0);
+        if (!hasWhitespace(line)) {
+            phonemiseWord(line, w, out);
+            return out.toString().trim();
         }
-        return false;    
+        String[] words = line.split("\\s+");
+        for (int i = 0; i < words.length; i++) {
+            phonemiseWord(words[i].trim(), w, out);
+            out.append(' ');
+        }
+        return out.toString().trim();
     }
-    
+
     /**
-     * check next position is semiconsonant 
-     * @param pos
-     * @return
+     * Whether the line has any character that splitting on whitespace
+     * or trimming would remove.
      */
-    private boolean isNextSemiConsonant(int pos){
-        if((pos+1) >= listPhoneSym.size()) return false;
-        if(listPhoneSym.get(pos+1).equals("n:") || listPhoneSym.get(pos+1).equals("a:")) {
+    private static boolean hasWhitespace(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) <= ' ') {
                 return true;
+            }
         }
-        return false;    
+        return false;
     }
-    
+
     /**
-     * Get a string from arraylist
-     * @param lPhoneSym
-     * @param lPhoneTypes
-     * @return
+     * Phonemise one word and append its transcription to out.
+     * @param word
+     * @param w the context to work in; reset before use
+     * @param out
      */
-    private String getStringfromArrayList(ArrayList<String> aList) {
-        Iterator<String> listrun = aList.iterator();
-        StringBuilder result = new StringBuilder();
-        while(listrun.hasNext())
-        {
-            result.append(" "+listrun.next());
+    private void phonemiseWord(String word, WordContext w, StringBuilder out) throws IOException
+    {
+        StemCache stems = stemCache;
+        int suffix = stems != null ? stems.findSuffix(word) : -1;
+        String stem = null;
+        if (suffix >= 0) {
+            stem = word.substring(0, word.length() - stems.getSuffix(suffix).length());
+            String cached = stems.get(stem, suffix);
+            if (cached != null) {
+                out.append(cached);
+                return;
+            }
+        }
+
+        boolean known = mapWord(word, w);
+        // with an unknown character, the characters and phones are not aligned
+        if (stem == null || !known) {
+            SchwaRules.apply(w);
+            appendSyllabified(w, out, -1, null);
+            return;
+        }
+        StringBuilder state = new StringBuilder();
+        int shared = SchwaRules.apply(w, stem.length() - 2, state, null);
+        int start = out.length();
+        int split = appendSyllabified(w, out, shared - 1, state);
+        if (split >= 0) {
+            stems.put(stem, suffix, out.substring(start, split), state.toString(), out.substring(split));
         }
-        return result.toString();
     }
 
     /**
-     * Hex-decimal representation for a given string
-     * @param ch
-     * @return
+     * Fill the context with the characters and phones of a word.
+     * @param word
+     * @param w the context; reset before use
+     * @return true if all characters are in the map
      */
-    private String toHex4(int ch) 
-    {
-        String hex = Integer.toHexString(ch).toUpperCase();
-        switch (hex.length()) {
-            case 3  : return "0" + hex;
-            case 2  : return "00" + hex;
-            case 1  : return "000" + hex;
-            default : return hex;
+    private boolean mapWord(String word, WordContext w) {
+        boolean known = true;
+        w.reset();
+        for (int i = 0; i < word.length(); i++) {
+            char uchar = word.charAt(i);
+            PhoneType phoneType = getPhoneType(uchar);
+            w.addUchar(uchar, phoneType == PhoneType.CON ? 'U' : '#');
+            // Unknown symbols only stay in the list of characters
+            if (phoneType == PhoneType.UNKNOWN) {
+                known = false;
+                continue;
+            }
+            w.addPhone(phoneSymbols[uchar - BLOCK_START], phoneType, phoneFlags[uchar - BLOCK_START]);
         }
+        return known;
     }
 
-    
-    private void loadPhoneSymbolsAndTypes(InputStream inStream) throws IOException
-    {
-        String line;
-        BufferedReader bfr = new BufferedReader(new InputStreamReader(inStream, "UTF-8"));
-        UTF8toPhoneSymbols = new HashMap<String, String>();
-        UTF8toPhoneTypes = new HashMap<String, String>();
-        while ( (line = bfr.readLine()) != null )
-        {
-            String[] words = line.split("\\|");
-            UTF8toPhoneSymbols.put(words[0],words[1]);
-            UTF8toPhoneTypes.put(words[0],words[2]);
-        }
-        bfr.close();
-    }
-        
-   
-    
     /**
-     * verification for 'KA' varg based on unicode chart
-     * @param uniCodeHex
-     * @return
+     * Show how the schwa rules decide on each phone of a word.
+     * @param word a single word
+     * @return the consonant type of each phone after each rule, and the transcription
+     * @see RuleTrace
      */
-    private boolean isBelongs2KAVarga(String uniCodeHex) {
-        int unicode = hexString2Int(uniCodeHex);
-        int minFVChart = hexString2Int("0915"); 
-        int maxFVChart = hexString2Int("0919");
-        
-        if ( unicode >= minFVChart && unicode <= maxFVChart ) {
-            return true;
-        }
-        return false;
+    String explain(String word) {
+        WordContext w = new WordContext(word.length() + 8);
+        mapWord(word, w);
+        RuleTrace trace = new RuleTrace();
+        SchwaRules.apply(w, -1, null, trace);
+        StringBuilder out = new StringBuilder();
+        appendSyllabified(w, out, -1, null);
+        return trace + "\nresult  " + out.toString().trim();
     }
-    
+
     /**
-     * verification for 'CHA' varg based on unicode chart
-     * @param uniCodeHex
-     * @return
+     * Look up the phone type of a character
+     * @param uchar
+     * @return the phone type, or {@link PhoneType#UNKNOWN} if the character is not in the map
      */
-    private boolean isBelongs2CHAVarga(String uniCodeHex) {
-        int unicode = hexString2Int(uniCodeHex);
-        int minFVChart = hexString2Int("091A"); 
-        int maxFVChart = hexString2Int("091E");
-        
-        if ( unicode >= minFVChart && unicode <= maxFVChart ) {
-            return true;
+    private PhoneType getPhoneType(int uchar) {
+        int index = uchar - BLOCK_START;
+        if (index < 0 || index >= BLOCK_SIZE) {
+            return PhoneType.UNKNOWN;
         }
-        return false;
+        return phoneTypes[index];
     }
-    
+
     /**
-     * verification for 'TA' varg based on unicode chart
-     * @param uniCodeHex
-     * @return
+     * Append the transcription of the word to out: a stress mark on the
+     * first syllable, then the phones with a syllable boundary "-" after
+     * every vowel that has another vowel later in the word. If the vowel
+     * is followed by "n:" or "a:", the boundary goes after that instead.
+     *
+     * This is done in a single pass over the phones. A vowel whose
+     * boundary has been pushed back behind a following "a:" still gets
+     * its own boundary if it is followed by another vowel, so that
+     * sequence ends in two boundaries; the output keeps that form.
+     * @param w
+     * @param out
+     * @param mark a phone at which to record the state of the pass, or -1
+     * @param state receives the phone at mark and the state before it
+     * @return the length of out before the phone at mark, or -1 if there was no mark
      */
-    private boolean isBelongs2TAVarga(String uniCodeHex) {
-        int unicode = hexString2Int(uniCodeHex);
-        int minFVChart = hexString2Int("091F"); 
-        int maxFVChart = hexString2Int("0923");
-        
-        if ( unicode >= minFVChart && unicode <= maxFVChart ) {
-            return true;
+    private int appendSyllabified(WordContext w, StringBuilder out, int mark, StringBuilder state) {
+        int lastVowel = -1;
+        for (int i = 0; i < w.length; i++) {
+            if (w.phoneTypes[i] == PhoneType.VOW) {
+                lastVowel = i;
+            }
         }
-        return false;
+
+        out.append(" '");
+        boolean boundaryAfterThis = false;
+        int split = -1;
+        for (int i = 0; i < w.length; i++) {
+            if (i == mark) {
+                split = out.length();
+                state.append(w.phoneSym[i]).append((char) ('0' + w.phoneTypes[i].ordinal()))
+                        .append(boundaryAfterThis ? 'T' : 'F').append('|');
+            }
+            out.append(' ').append(w.phoneSym[i]);
+            boolean boundaryAfterNext = false;
+            if (w.phoneTypes[i] == PhoneType.VOW && i < lastVowel) {
+                if (!boundaryAfterThis && isNextSemiConsonant(w, i)) {
+                    boundaryAfterNext = true;
+                } else {
+                    out.append(" -");
+                }
+            }
+            if (boundaryAfterThis) {
+                out.append(" -");
+            }
+            boundaryAfterThis = boundaryAfterNext;
+        }
+        return split;
     }
-    
+
     /**
-     * verification for 'THA' varg based on unicode chart
-     * @param uniCodeHex
+     * check next position is semiconsonant
+     * @param pos
      * @return
      */
-    private boolean isBelongs2THAVarga(String uniCodeHex) {
-        int unicode = hexString2Int(uniCodeHex);
-        int minFVChart = hexString2Int("0924"); 
-        int maxFVChart = hexString2Int("0929");
-        
-        if ( unicode >= minFVChart && unicode <= maxFVChart ) {
-            return true;
+    private boolean isNextSemiConsonant(WordContext w, int pos){
+        if((pos+1) >= w.length) return false;
+        if((w.phoneFlags[pos+1] & PhoneFlags.CODA) != 0) {
+                return true;
         }
         return false;
     }
-    
+
     /**
-     * verification for 'PA' varg based on unicode chart
-     * @param uniCodeHex
+     * Hex-decimal representation for a given string
+     * @param ch
      * @return
      */
-    private boolean isBelongs2PAVarga(String uniCodeHex) {
-        int unicode = hexString2Int(uniCodeHex);
-        int minFVChart = hexString2Int("092A"); 
-        int maxFVChart = hexString2Int("092E");
-        
-        if ( unicode >= minFVChart && unicode <= maxFVChart ) {
-            return true;
+    private String toHex4(int ch)
+    {
+        String hex = Integer.toHexString(ch).toUpperCase();
+        switch (hex.length()) {
+            case 3  : return "0" + hex;
+            case 2  : return "00" + hex;
+            case 1  : return "000" + hex;
+            default : return hex;
         }
-        return false;
     }
-    
+
+
     /**
-     * verification for 'YA' varg based on unicode chart
-     * @param uniCodeHex
-     * @return
+     * Compile the map into the dense symbol and type tables. Lines have
+     * the format <code>hexcode|phonesymbol|phonetype</code>; a later
+     * line for the same code overrides an earlier one.
+     * @param inStream
+     * @throws IOException
      */
-    private boolean isBelongs2YAVarga(String uniCodeHex) {
-        int unicode = hexString2Int(uniCodeHex);
-        int minFVChart = hexString2Int("092F"); 
-        int maxFVChart = hexString2Int("0939");
-        
-        if ( unicode >= minFVChart && unicode <= maxFVChart ) {
-            return true;
+    private void loadPhoneSymbolsAndTypes(InputStream inStream) throws IOException
+    {
+        String line;
+        BufferedReader bfr = new BufferedReader(new InputStreamReader(inStream, "UTF-8"));
+        try {
+            while ( (line = bfr.readLine()) != null )
+            {
+                if (line.trim().equals("")) {
+                    continue;
+                }
+                String[] words = line.split("\\|");
+                if (words.length < 3) {
+                    throw new IOException("Invalid line in UTF-8 to IT3 map: '" + line + "'");
+                }
+                int index;
+                PhoneType phoneType;
+                try {
+                    index = Integer.parseInt(words[0].trim(), 16) - BLOCK_START;
+                    phoneType = PhoneType.valueOf(words[2].trim());
+                } catch (IllegalArgumentException iae) {
+                    throw new IOException("Invalid line in UTF-8 to IT3 map: '" + line + "'", iae);
+                }
+                if (index < 0 || index >= BLOCK_SIZE || phoneType == PhoneType.UNKNOWN) {
+                    throw new IOException("Invalid line in UTF-8 to IT3 map: '" + line + "'");
+                }
+                phoneSymbols[index] = words[1];
+                phoneTypes[index] = phoneType;
+                phoneFlags[index] = PhoneFlags.of(words[1]);
+            }
+        } finally {
+            bfr.close();
         }
-        return false;
     }
-    
+
+
+
     public ArrayList<String> readUTF8String(String word) throws IOException
     {
         CharBuffer cbuf = CharBuffer.wrap(word);
@@ -332,7 +466,7 @@ public class HindiLTS {
         }
         return utf8CharList;
     }
-    
+
     public ArrayList<String> readUTF8File(String filename) throws IOException
     {
         int ch;
@@ -343,640 +477,41 @@ public class HindiLTS {
         }
         return utf8CharList;
     }
-    
-    private void printData(String filename) throws IOException
-    {
-        ArrayList<String> utf8CharList = readUTF8File(filename);
-        
-        Iterator<String> listrun = utf8CharList.iterator();
-        while(listrun.hasNext())
-        {
-            String utf8Char    = listrun.next();
-            String phoneSymbol = UTF8toPhoneSymbols.get(utf8Char);
-            String phoneType   = UTF8toPhoneTypes.get(utf8Char);
-            if(phoneSymbol == null) phoneSymbol = "SPACE";
-            if(phoneType == null) phoneType = "#";
-            System.out.println(utf8Char+" "+phoneSymbol+" "+phoneType);
-        }
-    }
-    
-    
-    
+
+
     public void makeProperIt3(String filename) throws IOException
     {
         Scanner sc = new Scanner(new File(filename));
-        
+
         while (sc.hasNextLine()) {
         	String line = sc.nextLine().trim();
         	String[] words = line.split("\\s+");
         	for ( int i=0; i<words.length; i++ ) {
         		System.out.println(words[i]+" --> "+this.phonemise(words[i].trim()));
         	}
-        }  
-    }
-    
- 
-    /**
-     * Remove Halanth from telugu characters 
-     * @param lPhoneSym
-     * @param lPhoneTypes
-     * @return
-     */
-    private ArrayList<String> removeHal(ArrayList<String> lPhoneSym,
-            ArrayList<String> lPhoneTypes) {
-       
-        for(int i=0; i<lPhoneTypes.size(); i++){
-            if(lPhoneTypes.get(i).equals("HLT")){
-                lPhoneTypes.remove(i);
-                lPhoneSym.remove(i);
-                i--;
-            }
-        }
-        return lPhoneSym;
-    }
-    
-    /**
-     * Remove Halanth from telugu characters
-     */
-    private void removeHal() {
-       
-        for(int i=0; i<listPhoneTypes.size(); i++){
-            if(listPhoneTypes.get(i).equals("HLT")){
-                listPhoneTypes.remove(i);
-                listPhoneSym.remove(i);
-                i--;
-            }
-        }
-    }
-    
-    /**
-     * Remove unknown symbols
-     */
-    private void removeUnknownSymbols() {
-       
-        for(int i=0; i<listPhoneTypes.size(); i++){
-            if(listPhoneTypes.get(i).equals("#")){
-                listPhoneTypes.remove(i);
-                listPhoneSym.remove(i);
-                i--;
-            }
         }
     }
 
-
-    /**
-     * get ascii values for utf8 characters
-     * @param utf8Char
-     * @return
-     */
-    private String getAsciiChar(String utf8Char) {
-        int intValue = Integer.parseInt(utf8Char, 16);
-        char dec = (char)intValue;
-        return Character.toString(dec);
-    }
-    
-    
     /**
-     * Schwa handler 
+     * Print the transcription of each word given on the command line,
+     * or of each line of standard input if there are none.
+     * @param args
+     * @throws IOException
      */
-    private void RuleSetZero() {
-        
-        String prevType, nextType;
-        String prevPhone, nextPhone;
-        String prevUchar, nextUchar;
-        boolean isFinalCharacter = false;
-        
-        for(int i=0; i<listPhoneTypes.size(); i++){
-            
-            //if(listPhoneTypes.get(i) == null) continue;
-            //if(listPhoneTypes.get(i+1) == null) ;
-            prevType  = listPhoneTypes.get(i);
-            prevPhone = this.listPhoneSym.get(i);
-            prevUchar = this.utf8CharList.get(i);
-            
-            if ( (i+1) < listPhoneTypes.size() ) {
-                nextType = listPhoneTypes.get(i+1);
-                nextPhone = this.listPhoneSym.get(i+1);
-                nextUchar = this.utf8CharList.get(i+1);
-            } else {
-                nextType = listPhoneTypes.get(i);
-                nextPhone = this.listPhoneSym.get(i);
-                nextUchar = this.utf8CharList.get(i);
-                isFinalCharacter = true;
-            }
-            
-            // Bindu handling
-            if (prevUchar.equals("0902")) {
-                if (isFinalCharacter == true) {
-                    listPhoneTypes.set(i, "CON");
-                    listPhoneSym.set(i, "ng~");
-                    utf8CharList.set(i, "0919");
-                    listConTypes.set(i, "U");
-                } else if ( this.isBelongs2TAVarga(nextUchar) ) {
-                    listPhoneTypes.set(i, "CON");
-                    listPhoneSym.set(i, "n");
-                    utf8CharList.set(i, "0928");
-                    listConTypes.set(i, "U");
-                } else if ( this.isBelongs2PAVarga(nextUchar) ) {
-                    listPhoneTypes.set(i, "CON");
-                    listPhoneSym.set(i, "m");
-                    utf8CharList.set(i, "092E");
-                    listConTypes.set(i, "U");
-                } else if ( this.isBelongs2KAVarga(nextUchar) ) {
-                    listPhoneTypes.set(i, "CON");
-                    listPhoneSym.set(i, "ng~");
-                    utf8CharList.set(i, "0919");
-                    listConTypes.set(i, "U");
-                }
-            }
-            
-           // if (isFinalCharacter == true) {
-           //     break;
-           // }
-            
-            //System.err.println(prevType+" "+prevPhone+" "+prevUchar+" "+nextType+" "+nextPhone+" "+nextUchar);
-                
-            if ( (prevType.equals("CON") && nextType.equals("VOW")) ) {
-            	listConTypes.set(i, "F");
-            } else if (prevType.equals("VOW")) {
-            	listConTypes.set(i, "F");
-            }
-        }
-    }
-    
-    private void schwaHandler() {
-    	
-    	//printSchwaSequence();
-    	RuleSetZero();
-    	//printSchwaSequence();
-    	RuleSetOne();
-    	//printSchwaSequence();
-    	RuleSetTwo();
-    	//printSchwaSequence();
-    	RuleSetThree();
-    	//printSchwaSequence();
-    	RuleSetFour();
-    	//printSchwaSequence();
-    	RuleSetFive();
-    	//printSchwaSequence();
-    	RuleSetSix();
-    	//printSchwaSequence();
-    	RuleSetSeven();
-       	//printSchwaSequence();
-    	RuleSetEight();
-       //	printSchwaSequence();
-       	
-       	FinalizeRules();
-    }
-    
-    private void FinalizeRules() {
-    	 String prevType, nextType;
-         String prevPhone, nextPhone;
-         String prevUchar, nextUchar;
-         String prevCon, nextCon;
-         boolean isFinalCharacter = false;
-         boolean encounterF = false;
-         
-         for(int i=0; i<listPhoneTypes.size(); i++){
-        	 prevType  = listPhoneTypes.get(i);
-             prevPhone = this.listPhoneSym.get(i);
-             prevUchar = this.utf8CharList.get(i);
-             prevCon = this.listConTypes.get(i);
-             
-             if ( (i+1) < listPhoneTypes.size() ) {
-                 nextType = listPhoneTypes.get(i+1);
-                 nextPhone = this.listPhoneSym.get(i+1);
-                 nextUchar = this.utf8CharList.get(i+1);
-                 nextCon = this.listConTypes.get(i+1);
-             } else {
-                 nextType = listPhoneTypes.get(i);
-                 nextPhone = this.listPhoneSym.get(i);
-                 nextUchar = this.utf8CharList.get(i);
-                 nextCon = this.listConTypes.get(i);
-                 isFinalCharacter = true;
-             }
-             
-             
-             if (isFinalCharacter == true) {
-                 break;
-             }
-             
-             if ("F".equals(prevCon) && "CON".equals(prevType)) {
-            	 if ( !"VOW".equals(nextType) || isFullVowel(nextUchar)) {
-            		 listPhoneTypes.add(i+1, "VOW");
-                     listPhoneSym.add(i+1, "a");
-                     this.utf8CharList.add(i+1,"093D");
-                     listConTypes.add(i+1, "#");
-            	 }
-             }
-         }
- 	}
-    
-    private void RuleSetTwo() {
-    	 String prevType, nextType;
-         String prevPhone, nextPhone;
-         String prevUchar, nextUchar;
-         String prevCon, nextCon;
-         boolean isFinalCharacter = false;
-         
-         for(int i=0; i<listPhoneTypes.size(); i++){
-        	 prevType  = listPhoneTypes.get(i);
-             prevPhone = this.listPhoneSym.get(i);
-             prevUchar = this.utf8CharList.get(i);
-             prevCon = this.listConTypes.get(i);
-             
-             if ( (i+1) < listPhoneTypes.size() ) {
-                 nextType = listPhoneTypes.get(i+1);
-                 nextPhone = this.listPhoneSym.get(i+1);
-                 nextUchar = this.utf8CharList.get(i+1);
-                 nextCon = this.listConTypes.get(i+1);
-             } else {
-                 nextType = listPhoneTypes.get(i);
-                 nextPhone = this.listPhoneSym.get(i);
-                 nextUchar = this.utf8CharList.get(i);
-                 nextCon = this.listConTypes.get(i);
-                 isFinalCharacter = true;
-             }
-             
-             
-             if (isFinalCharacter == true) {
-                 break;
-             }
-             //printSchwaSequence();
-            
-             if ("y".equals(nextPhone)) {
-            	  if ("i".equals(prevPhone) || "ii".equals(prevPhone) || "u".equals(prevPhone) || "uu".equals(prevPhone) ){
-            		  listConTypes.set(i+1, "F");
-            	  } else if ("U".equals(prevCon)) {
-            		  listConTypes.set(i+1, "F");
-            	  }
-             }
-         }
-	}
-    
-    private void RuleSetThree() {
-   	 String prevType, nextType;
-        String prevPhone, nextPhone;
-        String prevUchar, nextUchar;
-        String prevCon, nextCon;
-        boolean isFinalCharacter = false;
-        
-        for(int i=0; i<listPhoneTypes.size(); i++){
-       	 prevType  = listPhoneTypes.get(i);
-            prevPhone = this.listPhoneSym.get(i);
-            prevUchar = this.utf8CharList.get(i);
-            prevCon = this.listConTypes.get(i);
-            
-            if ( (i+1) < listPhoneTypes.size() ) {
-                nextType = listPhoneTypes.get(i+1);
-                nextPhone = this.listPhoneSym.get(i+1);
-                nextUchar = this.utf8CharList.get(i+1);
-                nextCon = this.listConTypes.get(i+1);
-            } else {
-                nextType = listPhoneTypes.get(i);
-                nextPhone = this.listPhoneSym.get(i);
-                nextUchar = this.utf8CharList.get(i);
-                nextCon = this.listConTypes.get(i);
-                isFinalCharacter = true;
-            }
-            
-            
-            if (isFinalCharacter == true) {
-                break;
-            }
-            //printSchwaSequence();
-
-            if ("U".equals(nextCon)) {
-            	if ("y".equals(nextPhone) || "r".equals(nextPhone) || "l".equals(nextPhone) || "v".equals(nextPhone) ){
-            		if ("CON".equals(prevType) && "H".equals(prevCon) ) {
-            			listConTypes.set(i+1, "F"); 
-            		} else if ("HAL".equals(prevPhone)) {
-            			listConTypes.set(i+1, "F");  
-            		}
-
-            	}
-            }
-        }
-    }
-
-    private void RuleSetOne() {
-   	 String prevType, nextType;
-        String prevPhone, nextPhone;
-        String prevUchar, nextUchar;
-        String prevCon, nextCon;
-        boolean isFinalCharacter = false;
-        
-        for(int i=0; i<listPhoneTypes.size(); i++){
-       	 prevType  = listPhoneTypes.get(i);
-            prevPhone = this.listPhoneSym.get(i);
-            prevUchar = this.utf8CharList.get(i);
-            prevCon = this.listConTypes.get(i);
-            
-            if ( (i+1) < listPhoneTypes.size() ) {
-                nextType = listPhoneTypes.get(i+1);
-                nextPhone = this.listPhoneSym.get(i+1);
-                nextUchar = this.utf8CharList.get(i+1);
-                nextCon = this.listConTypes.get(i+1);
-            } else {
-                nextType = listPhoneTypes.get(i);
-                nextPhone = this.listPhoneSym.get(i);
-                nextUchar = this.utf8CharList.get(i);
-                nextCon = this.listConTypes.get(i);
-                isFinalCharacter = true;
-            }
-            
-            
-            if (isFinalCharacter == true) {
-                break;
-            }
-            //printSchwaSequence();
-            if ( ( "U".equals(prevCon) && prevType.equals("CON")) &&  nextType.equals("HLT") ) {
-           	 listConTypes.set(i, "H");
-            } 
-            //else if ( ("U".equals(prevCon) && isFullVowel(nextUchar)) ) {
-           	// listConTypes.set(i, "F");
-            //}
-        }
-	}
-
-    private void RuleSetFour() {
-      	 String prevType, nextType;
-           String prevPhone, nextPhone;
-           String prevUchar, nextUchar;
-           String prevCon, nextCon;
-           boolean isFinalCharacter = false;
-           
-           for(int i=0; i<listPhoneTypes.size(); i++){
-          	 prevType  = listPhoneTypes.get(i);
-               prevPhone = this.listPhoneSym.get(i);
-               prevUchar = this.utf8CharList.get(i);
-               prevCon = this.listConTypes.get(i);
-               
-               if ( (i+1) < listPhoneTypes.size() ) {
-                   nextType = listPhoneTypes.get(i+1);
-                   nextPhone = this.listPhoneSym.get(i+1);
-                   nextUchar = this.utf8CharList.get(i+1);
-                   nextCon = this.listConTypes.get(i+1);
-               } else {
-                   nextType = listPhoneTypes.get(i);
-                   nextPhone = this.listPhoneSym.get(i);
-                   nextUchar = this.utf8CharList.get(i);
-                   nextCon = this.listConTypes.get(i);
-                   isFinalCharacter = true;
-               }
-               
-               
-               if (isFinalCharacter == true) {
-                   break;
-               }
-               //printSchwaSequence();
-               if ( ("U".equals(prevCon) && isFullVowel(nextUchar)) ) {
-              	 listConTypes.set(i, "F");
-               }
-           }
-   	}
-    
-    private void RuleSetFive() {
-     	 String prevType, nextType;
-          String prevPhone, nextPhone;
-          String prevUchar, nextUchar;
-          String prevCon, nextCon;
-          boolean isFinalCharacter = false;
-          boolean encounterF = false;
-          
-          for(int i=0; i<listPhoneTypes.size(); i++){
-         	 prevType  = listPhoneTypes.get(i);
-              prevPhone = this.listPhoneSym.get(i);
-              prevUchar = this.utf8CharList.get(i);
-              prevCon = this.listConTypes.get(i);
-              
-              if ( (i+1) < listPhoneTypes.size() ) {
-                  nextType = listPhoneTypes.get(i+1);
-                  nextPhone = this.listPhoneSym.get(i+1);
-                  nextUchar = this.utf8CharList.get(i+1);
-                  nextCon = this.listConTypes.get(i+1);
-              } else {
-                  nextType = listPhoneTypes.get(i);
-                  nextPhone = this.listPhoneSym.get(i);
-                  nextUchar = this.utf8CharList.get(i);
-                  nextCon = this.listConTypes.get(i);
-                  isFinalCharacter = true;
-              }
-              
-              
-              if (isFinalCharacter == true) {
-                  break;
-              }
-              
-              if ("U".equals(prevCon) && !encounterF) {
-            	  listConTypes.set(i, "F");
-            	  break;
-              } else if ("F".equals(prevCon)) {
-            	  break;
-              }
-          }
-  	}
-    
-    private void RuleSetSix() {
-    	 String prevType, nextType;
-         String prevPhone, nextPhone;
-         String prevUchar, nextUchar;
-         String prevCon, nextCon;
-         boolean isFinalCharacter = false;
-         boolean encounterF = false;
-         int i = listPhoneTypes.size() - 1;
-         if (i < 0) return;
-         
-         
-         prevType  = listPhoneTypes.get(i);
-         prevPhone = this.listPhoneSym.get(i);
-         prevUchar = this.utf8CharList.get(i);
-         prevCon = this.listConTypes.get(i);
-         
-         if ( "U".equals(prevCon) && "CON".equals(prevType) ) {
-        	 listConTypes.set(i, "H");
-         }
-        
- 	}
-    
-    
-    private void RuleSetSeven() {
-    	 String prevType, nextType;
-         String prevPhone, nextPhone;
-         String prevUchar, nextUchar;
-         String prevCon, nextCon;
-         boolean isFinalCharacter = false;
-         boolean encounterF = false;
-         
-         for(int i=0; i<listPhoneTypes.size(); i++){
-        	 prevType  = listPhoneTypes.get(i);
-             prevPhone = this.listPhoneSym.get(i);
-             prevUchar = this.utf8CharList.get(i);
-             prevCon = this.listConTypes.get(i);
-             
-             if ( (i+1) < listPhoneTypes.size() ) {
-                 nextType = listPhoneTypes.get(i+1);
-                 nextPhone = this.listPhoneSym.get(i+1);
-                 nextUchar = this.utf8CharList.get(i+1);
-                 nextCon = this.listConTypes.get(i+1);
-             } else {
-                 nextType = listPhoneTypes.get(i);
-                 nextPhone = this.listPhoneSym.get(i);
-                 nextUchar = this.utf8CharList.get(i);
-                 nextCon = this.listConTypes.get(i);
-                 isFinalCharacter = true;
-             }
-             
-             
-             if (isFinalCharacter == true) {
-                 break;
-             }
-             
-             if ("U".equals(prevCon) && "CON".equals(prevType)) {
-            	 if ("CON".equals(nextType) && "H".equals(nextCon)) {
-            		 listConTypes.set(i, "F");
-            	 } else if ("SYM".equals(nextType) && "#".equals(nextCon)) {
-            		 listConTypes.set(i, "F");
-            	 }
-             } 
-             
-         }
- 	}
-    
-    private void RuleSetEight() {
-   	 	String prevType, nextType, currentType;
-        String prevPhone, nextPhone, currentPhone;
-        String prevUchar, nextUchar, currentUchar;
-        String prevCon, nextCon, currentCon;
-        boolean isFinalCharacter = false;
-        boolean encounterF = false;
-        
-        for(int i=1; i<listPhoneTypes.size()-1; i++){
-        	prevType  = listPhoneTypes.get(i-1);
-        	prevPhone = this.listPhoneSym.get(i-1);
-        	prevUchar = this.utf8CharList.get(i-1);
-        	prevCon = this.listConTypes.get(i-1);
-        	
-        	currentType  = listPhoneTypes.get(i);
-        	currentPhone = this.listPhoneSym.get(i);
-        	currentUchar = this.utf8CharList.get(i);
-        	currentCon = this.listConTypes.get(i);
-
-        	nextType = listPhoneTypes.get(i+1);
-        	nextPhone = this.listPhoneSym.get(i+1);
-        	nextUchar = this.utf8CharList.get(i+1);
-        	nextCon = this.listConTypes.get(i+1);
-
-
-            if (isFinalCharacter == true) {
-                break;
+    public static void main(String[] args) throws IOException {
+        HindiLTS lts = new HindiLTS(HindiLTS.class.getResourceAsStream("/marytts/language/hi/lexicon/UTF8toIT3.hi.list"));
+        PrintStream out = new PrintStream(System.out, true, "UTF-8");
+        if (args.length > 0) {
+            for (String word : args) {
+                out.println(word + "\t" + lts.phonemise(word));
             }
-            
-            if ( "U".equals(currentCon) ) {
-            	if ("F".equals(prevCon) && "F".equals(nextCon)) {
-            	 	listConTypes.set(i, "H");
-            	} else {
-            		listConTypes.set(i, "F");
-            	}
-            } 
-         }
-	}
-    
-    
-	/**
-     * print array list 
-     * @param aList
-     */
-    private void printArrayList(ArrayList<String> aList){
-        Iterator<String> listrun = aList.iterator();
-        System.out.println();
-        while(listrun.hasNext())
-        {
-            //System.out.print(listrun.next()+" ");
-            System.out.print(" " + listrun.next());
-        }
-        System.out.println();
-    }
-    
-
-    /**
-     * verification for full vowel range based on unicode chart
-     * @param uniCodeHex
-     * @return
-     */
-    private boolean isFullVowel(String uniCodeHex) {
-        int unicode    = hexString2Int(uniCodeHex);
-        int minFVChart = hexString2Int("0904"); 
-        int maxFVChart = hexString2Int("0914");
-        
-        if ( unicode >= minFVChart && unicode <= maxFVChart ) {
-            return true;
+            return;
         }
-        return false;
-    }
-    
-    /**
-     * Hex-decimal representation for a given string
-     * @param ch
-     * @return
-     */
-    private String int2HexString(int ch) 
-    {
-        String hex = Integer.toHexString(ch).toUpperCase();
-        switch (hex.length()) {
-            case 3  : return "0" + hex;
-            case 2  : return "00" + hex;
-            case 1  : return "000" + hex;
-            default : return hex;
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        String line;
+        while ((line = in.readLine()) != null) {
+            out.println(line + "\t" + lts.phonemise(line));
         }
     }
-    
-    /**
-     * converting hexcode to integer value
-     * @param hexCode
-     * @return
-     */
-    private int hexString2Int (String hexCode) {
-        return Integer.parseInt(hexCode, 16);  
-    }
-
-    private void printSchwaSequence() {
-    	if ( (this.listPhoneSym.size() != this.listConTypes.size()) 
-    			|| (this.listPhoneSym.size() != this.utf8CharList.size()) 
-    			|| (this.listPhoneSym.size() != this.listPhoneTypes.size()) ) {
-    		System.err.println(utf8CharList.size()+" "+listPhoneSym.size()
-    				+" "+listPhoneTypes.size()+ " "+listConTypes.size());
-    		throw new RuntimeException("Array list sizes doesnot match !!!");
-    	}
-    	System.out.println("***************");
-    	for ( int i=0; i<this.utf8CharList.size(); i++ ) {
-    		System.out.println(utf8CharList.get(i)+" "+listPhoneSym.get(i)
-    				+" "+listPhoneTypes.get(i)+ " "+listConTypes.get(i));
-    	}
-    }
-    /**
-     * @param args
-     * @throws IOException 
-     */
-    public static void main(String[] args) throws IOException {
-        
-        //HindiLTS utf8r = new  HindiLTS(new FileInputStream("~/openmary/lib/modules/te/lexicon/UTF8phone.te.list"));
-        HindiLTS utf8r = new  HindiLTS(new FileInputStream("/Users/sathish/Work/BitBucket/marytts/marytts-lang-hi/src/main/resources/marytts/language/hi/lexicon/UTF8toIT3.hi.list"));
-        //utf8r.makeProperIt3("/home/sathish/Desktop/telugu-utf8-txt.done.data");
-        //String nameString = "\u0C05\u0C38\u0C1F\u0C08\u0C05\u0C37";
-        //PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream("telugu-utf.txt"), "UTF8"));
-        //pw.print(nameString);
-        //pw.flush();
-        //pw.close();
-        
-       System.out.println("Result : "+utf8r.phonemise("आपका"));
-      System.out.println("Result : "+utf8r.phonemise("बचपन"));
-      System.out.println("Result : "+utf8r.phonemise("प्रियतम"));
-       System.out.println("Result : "+utf8r.phonemise("आमंत्रण"));
-      System.out.println("Result : "+utf8r.phonemise("कतई"));
-      System.out.println("Result : "+utf8r.phonemise("हूँ"));
-      utf8r.makeProperIt3("/Users/sathish/Work/BitBucket/delme/text/hin_0004.txt");
-        
-    }
 
 }
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.phonemiser;
+
+/**
+ * Classes of phone symbols that the schwa rules and the syllabification
+ * test for. They are worked out once per symbol, when the UTF-8 to IT3
+ * map is loaded, and travel with the phones in the {@link WordContext},
+ * so that the rules test bits instead of comparing strings.
+ */
+final class PhoneFlags {
+
+    /** "y" */
+    static final int Y = 1;
+    /** "y", "r", "l" or "v" */
+    static final int SEMIVOWEL = 2;
+    /** "i", "ii", "u" or "uu" */
+    static final int HIGH_VOWEL = 4;
+    /** "HAL", the halant */
+    static final int HALANT = 8;
+    /** "n:" or "a:", which close the syllable of the vowel before them */
+    static final int CODA = 16;
+
+    private PhoneFlags() {
+    }
+
+    /**
+     * @param symbol a phone symbol
+     * @return the classes the symbol belongs to
+     */
+    static int of(String symbol) {
+        int flags = 0;
+        if ("y".equals(symbol)) {
+            flags |= Y;
+        }
+        if ("y".equals(symbol) || "r".equals(symbol) || "l".equals(symbol) || "v".equals(symbol)) {
+            flags |= SEMIVOWEL;
+        }
+        if ("i".equals(symbol) || "ii".equals(symbol) || "u".equals(symbol) || "uu".equals(symbol)) {
+            flags |= HIGH_VOWEL;
+        }
+        if ("HAL".equals(symbol)) {
+            flags |= HALANT;
+        }
+        if ("n:".equals(symbol) || "a:".equals(symbol)) {
+            flags |= CODA;
+        }
+        return flags;
+    }
+}
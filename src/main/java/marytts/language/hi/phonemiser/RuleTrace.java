@@ -0,0 +1,81 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.phonemiser;
+
+/**
+ * The consonant type ('U' undecided, 'F' full, 'H' half, '#' not a
+ * consonant) of every position of a word before the schwa rules and
+ * after each of them, for explaining a transcription.
+ */
+final class RuleTrace {
+
+    /** Rows of the trace after the input row */
+    static final String[] RULES = { "rule 0", "rule 1", "rule 2", "rule 3", "rule 4", "rule 5", "rule 6",
+            "rule 7", "rule 8" };
+
+    private String[] phones;
+    private char[] input;
+    private char[][] rows;
+
+    void begin(WordContext w) {
+        phones = new String[w.length];
+        input = new char[w.length];
+        rows = new char[RULES.length][w.length];
+        for (int i = 0; i < w.length; i++) {
+            phones[i] = w.phoneSym[i];
+            input[i] = i < w.ucharCount ? w.conTypes[i] : ' ';
+        }
+    }
+
+    void record(int rule, int position, char conType) {
+        rows[rule][position] = conType;
+    }
+
+    /**
+     * A table with a column per phone and a row per rule; a rule that
+     * changed the type of a phone is marked with '*'.
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        int[] widths = new int[phones.length];
+        out.append(String.format("%-8s", "phones"));
+        for (int i = 0; i < phones.length; i++) {
+            widths[i] = Math.max(3, phones[i].length() + 1);
+            out.append(String.format("%-" + widths[i] + "s", phones[i]));
+        }
+        out.append('\n').append(String.format("%-8s", "input"));
+        char[] previous = input;
+        for (int i = 0; i < phones.length; i++) {
+            out.append(String.format("%-" + widths[i] + "s", input[i]));
+        }
+        for (int r = 0; r < RULES.length; r++) {
+            out.append('\n').append(String.format("%-8s", RULES[r]));
+            for (int i = 0; i < phones.length; i++) {
+                char c = rows[r][i];
+                String cell = c != previous[i] ? c + "*" : String.valueOf(c);
+                out.append(String.format("%-" + widths[i] + "s", cell));
+            }
+            previous = rows[r];
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,340 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi.phonemiser;
+
+/**
+ * Schwa deletion rules of the Hindi letter-to-sound conversion.
+ *
+ * The rules decide for every consonant whether it is full ('F', it
+ * keeps its inherent vowel) or half ('H', it does not). Each rule is a
+ * function of a small window around the current position; they are
+ * applied in the historical order rule 0, rule 1, ..., rule 8, finalize.
+ * Rather than running one scan per rule, {@link #apply(WordContext)}
+ * composes them into a single left-to-right pass: rules 0 to 6 run two
+ * positions ahead of rules 7, 8 and finalize, which need the result
+ * of the earlier rules on their right-hand context. Phones are written
+ * to a fresh output buffer, with an "a" after every full consonant and
+ * without halants.
+ *
+ * Positions refer to the phone arrays of the {@link WordContext}; the
+ * character and consonant type at the same index are read from their
+ * own arrays, exactly as the rules were originally written.
+ */
+final class SchwaRules {
+
+    private static final int BINDU = 0x0902;
+
+    private SchwaRules() {
+    }
+
+    /**
+     * Run all schwa rules on the word and leave the resulting phones,
+     * halants removed and inherent vowels inserted, in the phone arrays
+     * of the context.
+     * @param w
+     */
+    static void apply(WordContext w) {
+        apply(w, -1, null, null);
+    }
+
+    /**
+     * Run all schwa rules on the word, recording the state of the pass
+     * before position <code>captureAt</code>. From there on, the pass
+     * reads nothing but that state and the characters from
+     * <code>captureAt</code> on; the phones written up to then do not
+     * depend on anything after <code>captureAt + 1</code>.
+     * @param w
+     * @param captureAt the position to record the state at, with
+     * <code>2 &lt; captureAt &lt; w.length - 1</code>, or -1 for none
+     * @param state receives the state, if captureAt is not -1
+     * @param trace if not null, receives the consonant type of every
+     * position after each rule
+     * @return the number of phones written before captureAt, or -1 if there was no capture
+     */
+    static int apply(WordContext w, int captureAt, StringBuilder state, RuleTrace trace) {
+        final int n = w.length;
+        if (trace != null) {
+            trace.begin(w);
+        }
+        w.beginOutput(n + n / 2 + 1);
+        if (n == 0) {
+            w.endOutput();
+            return -1;
+        }
+        int captured = -1;
+        char prevC2 = '#';
+        char prevC3 = '#';
+        char prevC8 = '#';
+        boolean ruleFiveDone = false;
+        ruleZero(w, 0);
+        for (int k = 0; k < n + 2; k++) {
+            if (k == captureAt) {
+                // rules 0 to 6 read back one position and rules 7, 8 and
+                // finalize read ahead two, so the pass needs k-2 to k+1
+                state.append(prevC2).append(prevC3).append(prevC8).append(ruleFiveDone ? 'T' : 'F');
+                for (int i = k - 2; i < k + 2; i++) {
+                    state.append((char) w.uchars[i]).append(w.conTypes[i])
+                            .append((char) ('0' + w.phoneTypes[i].ordinal())).append(w.phoneSym[i]).append('|');
+                }
+                captured = w.outputLength();
+            }
+            if (k < n) {
+                // rules 0 to 6 on position k
+                if (k + 1 < n) {
+                    ruleZero(w, k + 1);
+                }
+                char c = w.conTypes[k];
+                if (trace != null) {
+                    trace.record(0, k, c);
+                }
+                c = ruleOne(w, k, c);
+                if (trace != null) {
+                    trace.record(1, k, c);
+                }
+                c = ruleTwo(w, k, c, prevC2);
+                prevC2 = c;
+                if (trace != null) {
+                    trace.record(2, k, c);
+                }
+                c = ruleThree(w, k, c, prevC3);
+                prevC3 = c;
+                if (trace != null) {
+                    trace.record(3, k, c);
+                }
+                c = ruleFour(w, k, c);
+                if (trace != null) {
+                    trace.record(4, k, c);
+                }
+                if (!ruleFiveDone && k < n - 1) {
+                    if (c == 'U') {
+                        c = 'F';
+                        ruleFiveDone = true;
+                    } else if (c == 'F') {
+                        ruleFiveDone = true;
+                    }
+                }
+                if (trace != null) {
+                    trace.record(5, k, c);
+                }
+                w.conTypes[k] = ruleSix(w, k, c);
+                if (trace != null) {
+                    trace.record(6, k, w.conTypes[k]);
+                }
+            }
+            int j = k - 2;
+            if (j >= 0) {
+                // rules 7, 8 and finalize on position j
+                char c = ruleSeven(w, j);
+                if (trace != null) {
+                    trace.record(7, j, c);
+                }
+                c = ruleEight(w, j, c, prevC8);
+                prevC8 = c;
+                if (trace != null) {
+                    trace.record(8, j, c);
+                }
+                if (w.phoneTypes[j] != PhoneType.HLT) {
+                    w.addOutput(w.phoneSym[j], w.phoneTypes[j], w.phoneFlags[j]);
+                }
+                if (isSchwaAfter(w, j, c)) {
+                    w.addOutput("a", PhoneType.VOW, 0);
+                }
+            }
+        }
+        w.endOutput();
+        return captured;
+    }
+
+    /**
+     * Rule 0: an anusvara (bindu) becomes the nasal consonant of the
+     * following varga, or "ng~" at the end of the word. A consonant
+     * before a vowel sign, and any vowel, is full.
+     */
+    private static void ruleZero(WordContext w, int i) {
+        int n = w.length;
+        boolean isFinalCharacter = i + 1 >= n;
+        PhoneType prevType = w.phoneTypes[i];
+        PhoneType nextType = isFinalCharacter ? prevType : w.phoneTypes[i + 1];
+        int nextUchar = isFinalCharacter ? w.uchars[i] : w.uchars[i + 1];
+
+        if (w.uchars[i] == BINDU) {
+            if (isFinalCharacter) {
+                setConsonant(w, i, "ng~", 0x0919);
+            } else if (isBelongs2TAVarga(nextUchar)) {
+                setConsonant(w, i, "n", 0x0928);
+            } else if (isBelongs2PAVarga(nextUchar)) {
+                setConsonant(w, i, "m", 0x092E);
+            } else if (isBelongs2KAVarga(nextUchar)) {
+                setConsonant(w, i, "ng~", 0x0919);
+            }
+        }
+        if ((prevType == PhoneType.CON && nextType == PhoneType.VOW) || prevType == PhoneType.VOW) {
+            w.conTypes[i] = 'F';
+        }
+    }
+
+    private static void setConsonant(WordContext w, int i, String phone, int uchar) {
+        w.phoneTypes[i] = PhoneType.CON;
+        w.phoneSym[i] = phone;
+        w.phoneFlags[i] = 0;
+        w.uchars[i] = uchar;
+        w.conTypes[i] = 'U';
+    }
+
+    /**
+     * Rule 1: an undecided consonant followed by a halant is half.
+     */
+    private static char ruleOne(WordContext w, int i, char con) {
+        if (i + 1 < w.length && con == 'U' && w.phoneTypes[i] == PhoneType.CON
+                && w.phoneTypes[i + 1] == PhoneType.HLT) {
+            return 'H';
+        }
+        return con;
+    }
+
+    /**
+     * Rule 2: "y" is full after i, ii, u, uu or after an undecided
+     * consonant.
+     */
+    private static char ruleTwo(WordContext w, int i, char con, char prevCon) {
+        if (i > 0 && (w.phoneFlags[i] & PhoneFlags.Y) != 0) {
+            if ((w.phoneFlags[i - 1] & PhoneFlags.HIGH_VOWEL) != 0 || prevCon == 'U') {
+                return 'F';
+            }
+        }
+        return con;
+    }
+
+    /**
+     * Rule 3: an undecided y, r, l or v is full after a half consonant
+     * or a halant.
+     */
+    private static char ruleThree(WordContext w, int i, char con, char prevCon) {
+        if (i > 0 && con == 'U' && (w.phoneFlags[i] & PhoneFlags.SEMIVOWEL) != 0) {
+            if ((w.phoneTypes[i - 1] == PhoneType.CON && prevCon == 'H') || (w.phoneFlags[i - 1] & PhoneFlags.HALANT) != 0) {
+                return 'F';
+            }
+        }
+        return con;
+    }
+
+    /**
+     * Rule 4: an undecided consonant before a full vowel is full.
+     */
+    private static char ruleFour(WordContext w, int i, char con) {
+        if (i + 1 < w.length && con == 'U' && isFullVowel(w.uchars[i + 1])) {
+            return 'F';
+        }
+        return con;
+    }
+
+    /*
+     * Rule 5: the first consonant of the word is full, unless a full
+     * consonant comes first. It is applied inline in apply(), since
+     * it depends on all preceding positions.
+     */
+
+    /**
+     * Rule 6: an undecided consonant at the end of the word is half.
+     */
+    private static char ruleSix(WordContext w, int i, char con) {
+        if (i == w.length - 1 && con == 'U' && w.phoneTypes[i] == PhoneType.CON) {
+            return 'H';
+        }
+        return con;
+    }
+
+    /**
+     * Rule 7: an undecided consonant is full before a half consonant
+     * or before a symbol. Reads the result of rule 6 at i and i+1.
+     */
+    private static char ruleSeven(WordContext w, int i) {
+        char con = w.conTypes[i];
+        if (i + 1 < w.length && con == 'U' && w.phoneTypes[i] == PhoneType.CON) {
+            PhoneType nextType = w.phoneTypes[i + 1];
+            char nextCon = w.conTypes[i + 1];
+            if ((nextType == PhoneType.CON && nextCon == 'H') || (nextType == PhoneType.SYM && nextCon == '#')) {
+                return 'F';
+            }
+        }
+        return con;
+    }
+
+    /**
+     * Rule 8: a remaining undecided consonant inside the word is half
+     * between two full ones, and full otherwise.
+     */
+    private static char ruleEight(WordContext w, int i, char con, char prevCon) {
+        if (i > 0 && i < w.length - 1 && con == 'U') {
+            if (prevCon == 'F' && ruleSeven(w, i + 1) == 'F') {
+                return 'H';
+            }
+            return 'F';
+        }
+        return con;
+    }
+
+    /**
+     * Finalize: a full consonant gets an inherent vowel "a" unless a
+     * vowel sign follows. The last phone never gets one.
+     */
+    private static boolean isSchwaAfter(WordContext w, int i, char con) {
+        if (i + 1 >= w.length || con != 'F' || w.phoneTypes[i] != PhoneType.CON) {
+            return false;
+        }
+        return w.phoneTypes[i + 1] != PhoneType.VOW || isFullVowel(w.uchars[i + 1]);
+    }
+
+    /**
+     * verification for 'KA' varg based on unicode chart
+     * @param unicode
+     * @return
+     */
+    static boolean isBelongs2KAVarga(int unicode) {
+        return unicode >= 0x0915 && unicode <= 0x0919;
+    }
+
+    /**
+     * verification for 'TA' varg based on unicode chart
+     * @param unicode
+     * @return
+     */
+    static boolean isBelongs2TAVarga(int unicode) {
+        return unicode >= 0x091F && unicode <= 0x0923;
+    }
+
+    /**
+     * verification for 'PA' varg based on unicode chart
+     * @param unicode
+     * @return
+     */
+    static boolean isBelongs2PAVarga(int unicode) {
+        return unicode >= 0x092A && unicode <= 0x092E;
+    }
+
+    /**
+     * verification for full vowel range based on unicode chart
+     * @param unicode
+     * @return
+     */
+    static boolean isFullVowel(int unicode) {
+        return unicode >= 0x0904 && unicode <= 0x0914;
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package marytts.language.hi.phonemiser;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Transcriptions of {@link HindiLTS} split at an inflectional suffix,
+ * so that the forms of one stem (e.g. समझता, समझती, समझते) share the
+ * transcription of the stem.
+ *
+ * The schwa rules and the syllabification do not simply concatenate:
+ * the last consonants of the stem and the syllable boundaries change
+ * with the suffix. What is shared is therefore the part of the
+ * transcription that the rules finish before they reach the last two
+ * characters of the stem. The rest, from there to the end of the word,
+ * depends on nothing but the state of the rules at that point and the
+ * suffix; stems that leave the rules in the same state share it. A
+ * word is only split if all its
+ * characters are in the UTF-8 to IT3 map, its stem has at least
+ * {@link #MIN_STEM} characters and its suffix contains a vowel, which
+ * makes the combined transcription identical to that of the whole word.
+ *
+ * No more stems are added once maxSize stems are cached.
+ */
+final class StemCache {
+
+    /** Fewest characters in a stem */
+    static final int MIN_STEM = 5;
+
+    private static final Comparator<String> LONGEST_FIRST = new Comparator<String>() {
+        public int compare(String a, String b) {
+            return b.length() - a.length();
+        }
+    };
+
+    private final String[] suffixes;
+    private final int maxSize;
+    /** stem -> transcription of the stem up to the shared point, and the state of the rules there */
+    private final ConcurrentMap<String, Stem> stems = new ConcurrentHashMap<String, Stem>();
+    /** the distinct states, each with the rest of the transcription for every suffix */
+    private final ConcurrentMap<String, State> states = new ConcurrentHashMap<String, State>();
+
+    /**
+     * @param suffixes the suffixes, which must be valid as checked by {@link HindiLTS}
+     * @param maxSize the most stems to keep
+     */
+    StemCache(List<String> suffixes, int maxSize) {
+        this.suffixes = suffixes.toArray(new String[suffixes.size()]);
+        Arrays.sort(this.suffixes, LONGEST_FIRST);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Find the longest suffix of a word that leaves at least
+     * {@link #MIN_STEM} characters.
+     * @param word
+     * @return the number of the suffix, or -1 if the word has no such suffix
+     */
+    int findSuffix(String word) {
+        for (int i = 0; i < suffixes.length; i++) {
+            if (word.length() - suffixes[i].length() >= MIN_STEM && word.endsWith(suffixes[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String getSuffix(int suffix) {
+        return suffixes[suffix];
+    }
+
+    /**
+     * The cached transcription of a word.
+     * @param stem
+     * @param suffix the number of the suffix
+     * @return the transcription, or null if the stem or its ending with the suffix is not cached
+     */
+    String get(String stem, int suffix) {
+        Stem cached = stems.get(stem);
+        if (cached == null) {
+            return null;
+        }
+        String tail = cached.state.tails.get(suffix);
+        return tail != null ? cached.head.concat(tail) : null;
+    }
+
+    /**
+     * Remember the split transcription of a word.
+     * @param stem
+     * @param suffix the number of the suffix
+     * @param head the transcription of the stem up to the shared point
+     * @param state the state of the rules at that point
+     * @param tail the rest of the transcription
+     */
+    void put(String stem, int suffix, String head, String state, String tail) {
+        Stem cached = stems.get(stem);
+        if (cached == null) {
+            // the states are bounded by the stems: only a stem that is
+            // cached can add one
+            if (stems.size() >= maxSize) {
+                return;
+            }
+            State shared = states.get(state);
+            if (shared == null) {
+                State fresh = new State(suffixes.length);
+                shared = states.putIfAbsent(state, fresh);
+                if (shared == null) {
+                    shared = fresh;
+                }
+            }
+            cached = new Stem(head, shared);
+            stems.putIfAbsent(stem, cached);
+        }
+        cached.state.tails.set(suffix, tail);
+    }
+
+    /**
+     * @return the number of stems cached
+     */
+    int size() {
+        return stems.size();
+    }
+
+    /**
+     * @return the number of distinct states of the cached stems
+     */
+    int stateCount() {
+        return states.size();
+    }
+
+    private static final class Stem {
+        final String head;
+        final State state;
+
+        Stem(String head, State state) {
+            this.head = head;
+            this.state = state;
+        }
+    }
+
+    private static final class State {
+        final AtomicReferenceArray<String> tails;
+
+        State(int suffixCount) {
+            tails = new AtomicReferenceArray<String>(suffixCount);
+        }
+    }
+}
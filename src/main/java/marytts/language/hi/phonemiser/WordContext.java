@@ -0,0 +1,149 @@
+/**
+ * Copyright 2002-2008 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi.phonemiser;
+
+import java.util.Arrays;
+
+/**
+ * Working state of {@link HindiLTS} for a single word.
+ *
+ * Phone symbols and phone types run in parallel and only hold the
+ * characters found in the map. The unicode characters of the word and
+ * their consonant types ('U' undecided, 'F' full, 'H' half, '#' not a
+ * consonant) run in a second pair of arrays that also keeps the
+ * characters missing from the map, so the two pairs are only aligned
+ * up to the first unknown character; the schwa rules depend on this.
+ * An instance is confined to one thread; it may be {@link #reset()}
+ * and reused for the next word.
+ */
+final class WordContext {
+
+    int[] uchars;
+    char[] conTypes;
+    int ucharCount;
+
+    String[] phoneSym;
+    PhoneType[] phoneTypes;
+    /** the {@link PhoneFlags} of each phone */
+    int[] phoneFlags;
+    int length;
+
+    private String[] outSym;
+    private PhoneType[] outTypes;
+    private int[] outFlags;
+    private int outLength;
+
+    WordContext(int capacity) {
+        uchars = new int[capacity];
+        conTypes = new char[capacity];
+        phoneSym = new String[capacity];
+        phoneTypes = new PhoneType[capacity];
+        phoneFlags = new int[capacity];
+    }
+
+    /**
+     * Clear the context for the next word, keeping the allocated arrays.
+     */
+    void reset() {
+        Arrays.fill(phoneSym, 0, length, null);
+        Arrays.fill(phoneTypes, 0, length, null);
+        ucharCount = 0;
+        length = 0;
+    }
+
+    void addUchar(int uchar, char conType) {
+        if (ucharCount == uchars.length) {
+            int capacity = grow(ucharCount);
+            uchars = Arrays.copyOf(uchars, capacity);
+            conTypes = Arrays.copyOf(conTypes, capacity);
+        }
+        uchars[ucharCount] = uchar;
+        conTypes[ucharCount] = conType;
+        ucharCount++;
+    }
+
+    void addPhone(String symbol, PhoneType type, int flags) {
+        if (length == phoneSym.length) {
+            int capacity = grow(length);
+            phoneSym = Arrays.copyOf(phoneSym, capacity);
+            phoneTypes = Arrays.copyOf(phoneTypes, capacity);
+            phoneFlags = Arrays.copyOf(phoneFlags, capacity);
+        }
+        phoneSym[length] = symbol;
+        phoneTypes[length] = type;
+        phoneFlags[length] = flags;
+        length++;
+    }
+
+    /**
+     * Start writing phones to a fresh output buffer. The current phone
+     * arrays stay readable until {@link #endOutput()}.
+     * @param capacity
+     */
+    void beginOutput(int capacity) {
+        if (outSym == null || outSym.length < capacity) {
+            outSym = new String[capacity];
+            outTypes = new PhoneType[capacity];
+            outFlags = new int[capacity];
+        }
+        outLength = 0;
+    }
+
+    void addOutput(String symbol, PhoneType type, int flags) {
+        if (outLength == outSym.length) {
+            int capacity = grow(outLength);
+            outSym = Arrays.copyOf(outSym, capacity);
+            outTypes = Arrays.copyOf(outTypes, capacity);
+            outFlags = Arrays.copyOf(outFlags, capacity);
+        }
+        outSym[outLength] = symbol;
+        outTypes[outLength] = type;
+        outFlags[outLength] = flags;
+        outLength++;
+    }
+
+    int outputLength() {
+        return outLength;
+    }
+
+    /**
+     * Make the output buffer the current phone arrays; the previous phone
+     * arrays become the next output buffer. The characters and consonant
+     * types are no longer aligned with the phones afterwards.
+     */
+    void endOutput() {
+        String[] sym = phoneSym;
+        PhoneType[] types = phoneTypes;
+        int[] flags = phoneFlags;
+        Arrays.fill(sym, 0, length, null);
+        Arrays.fill(types, 0, length, null);
+        phoneSym = outSym;
+        phoneTypes = outTypes;
+        phoneFlags = outFlags;
+        length = outLength;
+        outSym = sym;
+        outTypes = types;
+        outFlags = flags;
+    }
+
+    private static int grow(int size) {
+        return Math.max(8, size * 2);
+    }
+}
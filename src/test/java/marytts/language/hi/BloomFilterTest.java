@@ -0,0 +1,59 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class BloomFilterTest {
+
+	@Test
+	public void noFalseNegativesAndFewFalsePositives() {
+		List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < 20000; i++) {
+			keys.add("शब्द" + i);
+		}
+		BloomFilter filter = new BloomFilter(keys);
+		for (String key : keys) {
+			assertTrue(key, filter.mightContain(key));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 20000; i++) {
+			if (filter.mightContain("नहीं" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("false positives: " + falsePositives, falsePositives < 20000 / 50);
+	}
+
+	@Test
+	public void emptyFilter() {
+		BloomFilter filter = new BloomFilter(Collections.<String>emptyList());
+		assertFalse(filter.mightContain("है"));
+		assertFalse(filter.mightContain(""));
+	}
+}
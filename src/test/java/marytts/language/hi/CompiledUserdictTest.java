@@ -0,0 +1,211 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import marytts.modules.phonemiser.AllophoneSet;
+
+import org.junit.Test;
+
+
+public class CompiledUserdictTest {
+
+	@Test
+	public void lookupMatchesSourceMap() throws IOException {
+		Map<String, List<String>> source = new HashMap<String, List<String>>();
+		source.put("है", Arrays.asList("' h ai"));
+		source.put("की", Arrays.asList("' k ii|P", "' k ii|V"));
+		source.put("Delhi", Arrays.asList("' d ei - l ii"));
+		for (int i = 0; i < 500; i++) {
+			source.put("शब्द" + i, Arrays.asList("' sh a b d|N" + (i % 3)));
+		}
+		File file = File.createTempFile("userdict-hi", ".bin");
+		file.deleteOnExit();
+		UserdictCompiler.compile(source, file);
+
+		CompiledUserdict compiled = CompiledUserdict.open(file);
+		assertEquals(source.size(), compiled.size());
+		for (Map.Entry<String, List<String>> e : source.entrySet()) {
+			assertEquals(e.getKey(), e.getValue(), compiled.get(e.getKey()));
+		}
+		assertNull(compiled.get("नहीं"));
+		assertNull(compiled.get(""));
+		assertNull(compiled.get("शब्द9999"));
+		assertEquals(source, new HashMap<String, List<String>>(compiled));
+	}
+
+	@Test
+	public void emptyUserdict() throws IOException {
+		File file = File.createTempFile("userdict-hi", ".bin");
+		file.deleteOnExit();
+		UserdictCompiler.compile(new HashMap<String, List<String>>(), file);
+		CompiledUserdict compiled = CompiledUserdict.open(file);
+		assertEquals(0, compiled.size());
+		assertNull(compiled.get("है"));
+		assertEquals(new ArrayList<String>(), new ArrayList<String>(compiled.keySet()));
+	}
+
+	@Test
+	public void namesMalformedLine() throws IOException {
+		File file = textUserdict("है | ' h ai\n# comment\nकी ' k ii\n");
+		try {
+			UserdictCompiler.readText(file);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith(file + ":3: "));
+			assertTrue(e.getMessage(), e.getMessage().contains("की ' k ii"));
+		}
+	}
+
+	@Test
+	public void rejectsInvalidPhones() throws Exception {
+		AllophoneSet allophones = AllophoneSet.getAllophoneSet(
+				getClass().getResourceAsStream("/marytts/language/hi/lexicon/allophones.hi.xml"), "allophones.hi.xml");
+		File valid = textUserdict("है | ' h ai\nकी | ' k ii | PSP\n");
+		assertEquals(2, UserdictCompiler.readText(valid, allophones).size());
+		File invalid = textUserdict("है | ' h ai\nकी | ' k qq | PSP\n");
+		try {
+			UserdictCompiler.readText(invalid, allophones);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith(invalid + ":2: "));
+		}
+	}
+
+	private static File textUserdict(String content) throws IOException {
+		File file = File.createTempFile("userdict-hi", ".txt");
+		file.deleteOnExit();
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void storesKeyFilter() throws IOException {
+		Map<String, List<String>> source = new HashMap<String, List<String>>();
+		for (int i = 0; i < 500; i++) {
+			source.put("शब्द" + i, Arrays.asList("' sh a b d"));
+		}
+		File file = File.createTempFile("userdict-hi", ".bin");
+		file.deleteOnExit();
+		UserdictCompiler.compile(source, file);
+
+		CompiledUserdict compiled = CompiledUserdict.open(file);
+		assertEquals(source.keySet(), new HashSet<String>(compiled.keySet()));
+		assertArrayEquals(new BloomFilter(source.keySet()).toLongArray(), compiled.getKeyFilter().toLongArray());
+	}
+
+	@Test
+	public void readsVersion1() throws IOException {
+		Map<String, List<String>> source = new HashMap<String, List<String>>();
+		for (int i = 0; i < 500; i++) {
+			source.put("शब्द" + i, Arrays.asList("' sh a b d"));
+		}
+		File file = File.createTempFile("userdict-hi", ".bin");
+		file.deleteOnExit();
+		UserdictCompiler.compile(source, file);
+		// a version 1 file ends with the block index
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(12);
+			int blockCount = raf.readInt();
+			int blockIndexOffset = raf.readInt();
+			raf.setLength(blockIndexOffset + 4L * blockCount);
+			raf.seek(4);
+			raf.writeInt(1);
+		} finally {
+			raf.close();
+		}
+
+		CompiledUserdict compiled = CompiledUserdict.open(file);
+		assertNull(compiled.getKeyFilter());
+		assertEquals(source, new HashMap<String, List<String>>(compiled));
+		assertEquals("' sh a b d", new IndexedUserdict(compiled).lookup("शब्द7", null));
+	}
+
+	@Test
+	public void recompileWhileOpen() throws Exception {
+		final Map<String, List<String>> first = new HashMap<String, List<String>>();
+		Map<String, List<String>> second = new HashMap<String, List<String>>();
+		for (int i = 0; i < 2000; i++) {
+			first.put("शब्द" + i, Arrays.asList("' sh a b d|N"));
+			second.put("नया" + i, Arrays.asList("' n a - y aa", "' n a y|ADJ"));
+		}
+		File file = File.createTempFile("userdict-hi", ".bin");
+		file.deleteOnExit();
+		UserdictCompiler.compile(first, file);
+		final CompiledUserdict open = CompiledUserdict.open(file);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while (!done.get()) {
+						for (Map.Entry<String, List<String>> e : first.entrySet()) {
+							assertEquals(e.getKey(), e.getValue(), open.get(e.getKey()));
+						}
+					}
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			}
+		};
+		reader.start();
+		for (int i = 0; i < 20; i++) {
+			UserdictCompiler.compile(i % 2 == 0 ? second : first, file);
+		}
+		UserdictCompiler.compile(second, file);
+		done.set(true);
+		reader.join();
+		assertNull(String.valueOf(failure.get()), failure.get());
+		assertEquals(first, new HashMap<String, List<String>>(open));
+		assertEquals(second, new HashMap<String, List<String>>(CompiledUserdict.open(file)));
+		// no temporary files are left behind
+		File[] left = file.getAbsoluteFile().getParentFile().listFiles();
+		for (File f : left) {
+			assertTrue(f.getName(), !(f.getName().startsWith(file.getName()) && f.getName().endsWith(".tmp")));
+		}
+	}
+}
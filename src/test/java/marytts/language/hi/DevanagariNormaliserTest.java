@@ -0,0 +1,86 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+
+public class DevanagariNormaliserTest {
+
+	@Test
+	public void unchangedTextIsReturnedAsItIs() {
+		String word = "समझता";
+		assertSame(word, DevanagariNormaliser.normalise(word));
+		assertSame("Delhi", DevanagariNormaliser.normalise("Delhi"));
+		assertSame("", DevanagariNormaliser.normalise(""));
+	}
+
+	@Test
+	public void nuktaIsFolded() {
+		// ज़रूर, with the nukta written separately
+		assertEquals("ज़रूर", DevanagariNormaliser.normalise("ज़रूर"));
+		assertEquals("क़फ़य़", DevanagariNormaliser.normalise("क़फ़य़"));
+		assertEquals("ऩऱऴ", DevanagariNormaliser.normalise("ऩऱऴ"));
+		// no precomposed form: the nukta is dropped
+		assertEquals("सा", DevanagariNormaliser.normalise("स़ा"));
+		assertEquals("क़", DevanagariNormaliser.normalise("क़़"));
+		assertEquals("", DevanagariNormaliser.normalise("़"));
+	}
+
+	@Test
+	public void formatCharactersAreDropped() {
+		// क्‍ष and क्‌ष
+		assertEquals("क्ष", DevanagariNormaliser.normalise("क्‍ष"));
+		assertEquals("क्ष", DevanagariNormaliser.normalise("क्‌ष"));
+		assertEquals("कमल", DevanagariNormaliser.normalise("﻿क­मल​"));
+		// a joiner between the consonant and the nukta
+		assertEquals("ज़", DevanagariNormaliser.normalise("ज‍़"));
+	}
+
+	@Test
+	public void digitsAndDandas() {
+		assertEquals("2024", DevanagariNormaliser.normalise("२०२४"));
+		assertEquals("0123456789", DevanagariNormaliser.normalise("०१२३४५६७८९"));
+		assertEquals("है.", DevanagariNormaliser.normalise("है।"));
+		assertEquals(".", DevanagariNormaliser.normalise("॥"));
+	}
+
+	@Test
+	public void longTexts() {
+		StringBuilder raw = new StringBuilder();
+		StringBuilder normalised = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			raw.append("ख़‌बर ");
+			normalised.append("ख़बर ");
+		}
+		assertEquals(normalised.toString(), DevanagariNormaliser.normalise(raw.toString()));
+		assertEquals("ख़", DevanagariNormaliser.normalise("ख़"));
+	}
+
+	@Test
+	public void userdictKeysAreNormalised() {
+		String[] parts = UserdictCompiler.parseLine("ज़रूर | ' j a - r uu r | ADV");
+		assertEquals("ज़रूर", parts[0]);
+		assertEquals("' j a - r uu r", parts[1]);
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class IndexedUserdictTest {
+
+	private static Map<String, List<String>> source() {
+		Map<String, List<String>> source = new HashMap<String, List<String>>();
+		source.put("है", Arrays.asList("' h ai"));
+		source.put("की", Arrays.asList("' k ii|PSP", "' k i|VM NN", "' k e"));
+		source.put("कर", Arrays.asList("' k a r|VM", "' k a r|NN"));
+		return source;
+	}
+
+	private static void assertLookups(IndexedUserdict dict) {
+		assertEquals("' h ai", dict.lookup("है", null));
+		assertEquals("' h ai", dict.lookup("है", "VM"));
+		assertEquals("' k ii", dict.lookup("की", "PSP"));
+		assertEquals("' k i", dict.lookup("की", "NN"));
+		assertEquals("' k i", dict.lookup("की", "VM"));
+		assertEquals("' k e", dict.lookup("की", "JJ"));
+		assertEquals("' k e", dict.lookup("की", null));
+		assertEquals("' k a r", dict.lookup("कर", "VM"));
+		assertNull(dict.lookup("नहीं", "NN"));
+	}
+
+	@Test
+	public void choosesEntryByPos() {
+		IndexedUserdict dict = new IndexedUserdict(source());
+		assertLookups(dict);
+	}
+
+	@Test
+	public void lastEntryWithoutMatchingPos() {
+		Map<String, List<String>> source = new HashMap<String, List<String>>();
+		source.put("से", Arrays.asList("' s e|PSP", "' s ei|NN"));
+		IndexedUserdict dict = new IndexedUserdict(source);
+		assertEquals("' s ei", dict.lookup("से", null));
+		assertEquals("' s ei", dict.lookup("से", "VM"));
+		assertEquals("' s ei", dict.lookup("से", "XC"));
+		assertEquals("' s e", dict.lookup("से", "PSP"));
+	}
+
+	@Test
+	public void compiledUserdict() throws IOException {
+		File file = File.createTempFile("userdict-hi", ".bin");
+		file.deleteOnExit();
+		UserdictCompiler.compile(source(), file);
+		assertLookups(new IndexedUserdict(CompiledUserdict.open(file)));
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import marytts.datatypes.MaryData;
+import marytts.datatypes.MaryDataType;
+import marytts.datatypes.MaryXML;
+import marytts.util.dom.MaryDomUtils;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+
+public class JPhonemiserTest {
+	private static JPhonemiser phonemiser;
+
+	@BeforeClass
+	public static void createPhonemiser() throws Exception {
+		phonemiser = new JPhonemiser("JPhonemiser", MaryDataType.PARTSOFSPEECH, MaryDataType.PHONEMES,
+				"hi.allophoneset", "hi.userdict", "hi.lexicon", "hi.utf8toit3map", false);
+	}
+
+	@AfterClass
+	public static void shutdownPhonemiser() {
+		phonemiser.shutdown();
+	}
+
+	@Test
+	public void caselessScripts() {
+		assertFalse(JPhonemiser.hasCase("नहीं"));
+		assertFalse(JPhonemiser.hasCase("१२३।"));
+		assertTrue(JPhonemiser.hasCase("Delhi"));
+		assertTrue(JPhonemiser.hasCase("दिल्ली-Delhi"));
+		assertTrue(JPhonemiser.hasCase("Ωμέγα"));
+	}
+
+	@Test
+	public void scripts() {
+		assertEquals(JPhonemiser.Script.DEVANAGARI, JPhonemiser.scriptOf("नहीं"));
+		assertEquals(JPhonemiser.Script.DEVANAGARI, JPhonemiser.scriptOf("क्या?"));
+		assertEquals(JPhonemiser.Script.OTHER, JPhonemiser.scriptOf("SMS"));
+		assertEquals(JPhonemiser.Script.OTHER, JPhonemiser.scriptOf("2024"));
+		assertEquals(JPhonemiser.Script.OTHER, JPhonemiser.scriptOf("Ωμέγα"));
+		assertEquals(JPhonemiser.Script.OTHER, JPhonemiser.scriptOf("."));
+		assertEquals(JPhonemiser.Script.MIXED, JPhonemiser.scriptOf("WhatsAppपर"));
+		assertEquals(JPhonemiser.Script.MIXED, JPhonemiser.scriptOf("5वाँ"));
+	}
+
+	@Test
+	public void partsWithoutTranscription() {
+		assertEquals("' p a r", JPhonemiser.combineParts(Arrays.asList(null, "' p a r")));
+		assertEquals("' e n - , p a r", JPhonemiser.combineParts(Arrays.asList("' e n", null, "' p a r")));
+		assertNull(JPhonemiser.combineParts(Arrays.asList((String) null)));
+	}
+
+	@Test
+	public void nuktaSpellings() throws Exception {
+		// each consonant with a nukta is spelt once decomposed and once precomposed
+		String[][] spellings = {
+				{ "\u0915\u093C", "\u0958" }, { "\u0916\u093C", "\u0959" }, { "\u0917\u093C", "\u095A" },
+				{ "\u091C\u093C", "\u095B" }, { "\u0921\u093C", "\u095C" }, { "\u0922\u093C", "\u095D" },
+				{ "\u092B\u093C", "\u095E" }, { "\u092F\u093C", "\u095F" }, { "\u0928\u093C", "\u0929" },
+				{ "\u0930\u093C", "\u0931" }, { "\u0933\u093C", "\u0934" } };
+		for (String[] spelling : spellings) {
+			for (String word : new String[] { "X\u093E", "\u092AX\u0928\u093E", "\u0938\u0921\u093C\u0915X" }) {
+				String decomposed = word.replace("X", spelling[0]);
+				String precomposed = word.replace("X", spelling[1]);
+				String expected = phonemiser.phonemise(precomposed, null, new StringBuilder());
+				assertNotNull(precomposed, expected);
+				assertEquals(decomposed, expected, phonemiser.phonemise(decomposed, null, new StringBuilder()));
+			}
+		}
+	}
+
+	@Test
+	public void nuktaPhones() throws Exception {
+		assertEquals("' p a - d:h n aa", phonemiser.phonemise("\u092A\u0922\u093C\u0928\u093E", null, new StringBuilder()));
+	}
+
+	@Test
+	public void sentencesInOrder() throws Exception {
+		MaryData d = new MaryData(MaryDataType.PARTSOFSPEECH, new Locale("hi"));
+		d.readFrom(new StringReader("<maryxml xmlns=\"" + MaryXML.NAMESPACE + "\" version=\"0.5\" xml:lang=\"hi\"><p>"
+				+ "<s><t>नमस्ते</t><t>दुनिया</t></s>"
+				+ "<s><t>यह</t><t>परीक्षा</t><t>है</t></s>"
+				+ "<s><t>पढ़ना</t></s></p></maryxml>"));
+		final Document doc = d.getDocument();
+		final NodeList original = doc.getElementsByTagNameNS(MaryXML.NAMESPACE, MaryXML.SENTENCE);
+		final List<String> received = new ArrayList<String>();
+		final List<Element> copies = new ArrayList<Element>();
+		phonemiser.process(d, new JPhonemiser.SentenceListener() {
+			public void sentencePhonemised(Element sentence) {
+				assertNotSame(doc, sentence.getOwnerDocument());
+				StringBuilder text = new StringBuilder();
+				NodeList tokens = sentence.getElementsByTagNameNS(MaryXML.NAMESPACE, MaryXML.TOKEN);
+				for (int i = 0; i < tokens.getLength(); i++) {
+					Element t = (Element) tokens.item(i);
+					assertTrue(MaryDomUtils.tokenText(t), t.hasAttribute("ph"));
+					text.append(MaryDomUtils.tokenText(t)).append(' ');
+				}
+				received.add(text.toString().trim());
+				copies.add(sentence);
+				// the sentences that follow are not transcribed yet
+				if (copies.size() < original.getLength()) {
+					Element next = (Element) original.item(copies.size());
+					assertFalse(((Element) next.getElementsByTagNameNS(MaryXML.NAMESPACE, MaryXML.TOKEN).item(0)).hasAttribute("ph"));
+				}
+			}
+		});
+		assertEquals(Arrays.asList("नमस्ते दुनिया", "यह परीक्षा है", "पढ़ना"), received);
+		for (int i = 0; i < copies.size(); i++) {
+			NodeList tokens = ((Element) original.item(i)).getElementsByTagNameNS(MaryXML.NAMESPACE, MaryXML.TOKEN);
+			NodeList copied = copies.get(i).getElementsByTagNameNS(MaryXML.NAMESPACE, MaryXML.TOKEN);
+			assertEquals(tokens.getLength(), copied.getLength());
+			for (int j = 0; j < tokens.getLength(); j++) {
+				assertEquals(((Element) tokens.item(j)).getAttribute("ph"), ((Element) copied.item(j)).getAttribute("ph"));
+			}
+		}
+	}
+
+	@Test
+	public void checksCompiledUserdict() throws Exception {
+		Map<String, List<String>> userdict = new HashMap<String, List<String>>();
+		userdict.put("नमस्ते", Arrays.asList("' n a - m a - s t ei"));
+		userdict.put("दुनिया", Arrays.asList("' d u - n i - y aa|NN", "' d u - n qq - y aa|VM"));
+		File file = File.createTempFile("userdict-hi", ".bin");
+		file.deleteOnExit();
+		UserdictCompiler.compile(userdict, file);
+
+		JPhonemiser checked = new JPhonemiser("JPhonemiser", MaryDataType.PARTSOFSPEECH, MaryDataType.PHONEMES,
+				"hi.allophoneset", "hi.userdict", "hi.lexicon", "hi.utf8toit3map", false);
+		try {
+			checked.userdictFilename = null;
+			checked.compiledUserdictFilename = file.getPath();
+			List<String> errors = new ArrayList<String>();
+			assertEquals(userdict, new HashMap<String, List<String>>(checked.loadUserdict(errors)));
+			assertEquals(1, errors.size());
+			assertTrue(errors.get(0), errors.get(0).contains("दुनिया"));
+		} finally {
+			checked.shutdown();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+
+public class NumberExpanderTest {
+	private final NumberExpander expander = new NumberExpander();
+
+	@Test
+	public void cardinals() {
+		assertEquals("शून्य", expander.expand("0"));
+		assertEquals("सत्तासी", expander.expand("87"));
+		assertEquals("एक सौ एक", expander.expand("101"));
+		assertEquals("दो हज़ार चौबीस", expander.expand("2024"));
+		assertEquals("एक लाख पच्चीस हज़ार", expander.expand("1,25,000"));
+		assertEquals("एक सौ पचास करोड़ तीन लाख", expander.expand("1500300000"));
+		assertEquals("ऋण पाँच", expander.expand("-5"));
+		assertEquals("तीन दशमलव एक चार", expander.expand("3.14"));
+	}
+
+	@Test
+	public void groupingCommas() {
+		assertEquals("एक करोड़ तेईस लाख पैंतालीस हज़ार छह सौ अठहत्तर", expander.expand("1,23,45,678"));
+		assertEquals("बारह हज़ार तीन सौ पैंतालीस", expander.expand("12,345"));
+		assertEquals("एक करोड़ तेईस लाख पैंतालीस हज़ार छह सौ सत्तासी", expander.expand("12,345,687"));
+		assertEquals("बारह हज़ार तीन सौ पैंतालीस दशमलव छह", expander.expand("12,345.6"));
+		assertEquals("एक हज़ार रुपये", expander.expand("₹1,000"));
+	}
+
+	@Test
+	public void commasBetweenNumbers() {
+		assertEquals("एक दो तीन", expander.expand("1,2,3"));
+		assertEquals("बारह चौंतीस", expander.expand("12,34"));
+		assertEquals("एक सौ तेईस पैंतालीस", expander.expand("123,45"));
+		assertEquals("एक दो सौ चौंतीस छप्पन", expander.expand("1,234,56"));
+		assertNull(expander.expandNumber("1,2,3"));
+		assertNull(expander.expand("₹1,2,3"));
+		assertNull(expander.expand("1,2,"));
+	}
+
+	@Test
+	public void devanagariDigits() {
+		assertEquals("एक हज़ार नौ सौ सैंतालीस", expander.expand("१,९४७"));
+		assertEquals("बयालीस", expander.expand("४२"));
+		assertEquals("पंद्रह अगस्त उन्नीस सौ सैंतालीस", expander.expand("१५/०८/१९४७"));
+	}
+
+	@Test
+	public void digitByDigit() {
+		assertEquals("शून्य नौ आठ", expander.expand("098"));
+	}
+
+	@Test
+	public void ordinals() {
+		assertEquals("पहला", expander.expand("1ला"));
+		assertEquals("दूसरी", expander.expand("2री"));
+		assertEquals("छठे", expander.expand("6ठे"));
+		assertEquals("पाँचवाँ", expander.expand("5वाँ"));
+		assertEquals("इक्कीसवीं", expander.expand("21वीं"));
+	}
+
+	@Test
+	public void amountsAndPercentages() {
+		assertEquals("पाँच सौ रुपये", expander.expand("₹500"));
+		assertEquals("एक रुपया", expander.expand("₹1"));
+		assertEquals("बारह रुपये पचास पैसे", expander.expand("₹12.50"));
+		assertEquals("दस लाख रुपये", expander.expand("रु.10,00,000"));
+		assertEquals("पचास प्रतिशत", expander.expand("50%"));
+	}
+
+	@Test
+	public void dates() {
+		assertEquals("छब्बीस जनवरी उन्नीस सौ पचास", expander.expand("26-01-1950"));
+		assertEquals("एक मई दो हज़ार", expander.expand("1.5.2000"));
+	}
+
+	@Test
+	public void leavesOtherTokensAlone() {
+		assertNull(expander.expand("भारत"));
+		assertNull(expander.expand("3G"));
+		assertNull(expander.expand("1."));
+		assertNull(expander.expand("31/13/2000"));
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Locale;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import marytts.datatypes.MaryData;
+import marytts.datatypes.MaryDataType;
+import marytts.datatypes.MaryXML;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+
+public class StreamingPhonemiserTest {
+	private static final String DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<maryxml xmlns=\"" + MaryXML.NAMESPACE + "\" version=\"0.5\" xml:lang=\"hi\">\n"
+			+ "<!-- two paragraphs -->\n"
+			+ "<p>\n"
+			+ "<s>\n"
+			+ "<t pos=\"NN\">नमस्ते</t>\n"
+			+ "<t pos=\"NN\" ph=\"' d u - n i - y aa\">दुनिया</t>\n"
+			+ "<t pos=\"$PUNCT\">।</t>\n"
+			+ "</s>\n"
+			+ "<s>\n"
+			+ "<prosody rate=\"slow\"><mtu orig=\"प्रधानमंत्री-जी\"><t>प्रधानमंत्री</t><t>जी</t></mtu></prosody>\n"
+			+ "<t ph=\"' k aa *\">कार्यालय</t>\n"
+			+ "<t sounds_like=\"पढ़ना\">पढना</t>\n"
+			+ "<t>घ<!-- split -->र</t>\n"
+			+ "<t pos=\"$PUNCT\">?</t>\n"
+			+ "</s>\n"
+			+ "</p>\n"
+			+ "<p><s><t>WhatsApp</t><t>पर</t><t>5वाँ</t><t pos=\"$PUNCT\">,</t><t>संदेश</t></s></p>\n"
+			+ "<t>बाहर</t>\n"
+			+ "</maryxml>\n";
+
+	private static JPhonemiser phonemiser;
+
+	@BeforeClass
+	public static void createPhonemiser() throws Exception {
+		phonemiser = new JPhonemiser("JPhonemiser", MaryDataType.PARTSOFSPEECH, MaryDataType.PHONEMES,
+				"hi.allophoneset", "hi.userdict", "hi.lexicon", "hi.utf8toit3map", false);
+	}
+
+	@AfterClass
+	public static void shutdownPhonemiser() {
+		phonemiser.shutdown();
+	}
+
+	@Test
+	public void sameAsDom() throws Exception {
+		MaryData d = new MaryData(MaryDataType.PARTSOFSPEECH, new Locale("hi"));
+		d.readFrom(new StringReader(DOCUMENT));
+		String expected = serialize(phonemiser.process(d).getDocument());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new StreamingPhonemiser(phonemiser).process(new ByteArrayInputStream(DOCUMENT.getBytes("UTF-8")), out);
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document streamed = factory.newDocumentBuilder().parse(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(expected, serialize(streamed));
+	}
+
+	/**
+	 * Both documents are written by the same serializer, which orders
+	 * the attributes and declares the namespaces in the same way.
+	 */
+	private static String serialize(Document doc) throws Exception {
+		StringWriter result = new StringWriter();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(result));
+		return result.toString();
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import marytts.language.hi.TranscriptionCache.Transcription;
+
+import org.junit.Test;
+
+
+public class TranscriptionCacheTest {
+
+	@Test
+	public void keysOnGraphAndPos() {
+		TranscriptionCache cache = new TranscriptionCache(100);
+		cache.put("का", "P", new Transcription("' k aa", "rules"), cache.getGeneration());
+		assertNotNull(cache.get("का", "P"));
+		assertNull(cache.get("का", null));
+		assertNull(cache.get("की", "P"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void staysWithinBounds() {
+		TranscriptionCache cache = new TranscriptionCache(64);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("w" + i, null, new Transcription("' w", "rules"), cache.getGeneration());
+		}
+		assertTrue(cache.size() <= 64);
+		assertEquals(1000 - cache.size(), cache.getEvictionCount());
+	}
+
+	@Test
+	public void invalidateDropsEntriesAndStalePuts() {
+		TranscriptionCache cache = new TranscriptionCache(100);
+		int generation = cache.getGeneration();
+		cache.put("है", null, new Transcription("' h ai", "userdict"), generation);
+		cache.invalidate();
+		assertNull(cache.get("है", null));
+		cache.put("है", null, new Transcription("' h ai", "userdict"), generation);
+		assertNull(cache.get("है", null));
+		cache.put("है", null, new Transcription("' h ai", "rules"), cache.getGeneration());
+		assertEquals("rules", cache.get("है", null).getG2pMethod());
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class UserdictReloaderTest {
+
+	private static void write(File file, String content) throws IOException {
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		out.write(content);
+		out.close();
+	}
+
+	/**
+	 * Reads the userdict as text; lines without phones are broken.
+	 */
+	private static class FileTarget implements UserdictReloader.Target {
+		final File file;
+		Map<String, List<String>> published;
+
+		FileTarget(File file) {
+			this.file = file;
+		}
+
+		public Map<String, List<String>> loadUserdict(List<String> errors) throws IOException {
+			try {
+				return UserdictCompiler.readText(file);
+			} catch (RuntimeException e) {
+				errors.add(e.toString());
+				return null;
+			}
+		}
+
+		public void publishUserdict(Map<String, List<String>> userdict) {
+			published = userdict;
+		}
+	}
+
+	@Test
+	public void reloadsChangedFileAndKeepsLastGoodSnapshot() throws IOException {
+		File file = File.createTempFile("userdict-hi", ".txt");
+		file.deleteOnExit();
+		write(file, "है | ' h ai\n");
+		FileTarget target = new FileTarget(file);
+		UserdictReloader reloader = new UserdictReloader(target, file.getPath(), null);
+		assertFalse(reloader.checkForChanges());
+
+		write(file, "है | ' h ai\nकी | ' k ii | P\n");
+		assertTrue(reloader.checkForChanges());
+		assertEquals(2, target.published.size());
+		assertEquals(2, reloader.getEntryCount());
+		assertEquals(1, reloader.getReloadCount());
+
+		Map<String, List<String>> good = target.published;
+		write(file, "है | ' h ai\nकी | ' k ii | P\nका |  \n");
+		assertFalse(reloader.checkForChanges());
+		assertEquals(good, target.published);
+		assertEquals(1, reloader.getFailureCount());
+		assertFalse(reloader.checkForChanges());
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsArePowersOfTwoMicroseconds() {
+		assertEquals(0, LatencyHistogram.bucket(999));
+		assertEquals(1, LatencyHistogram.bucket(1000));
+		assertEquals(2, LatencyHistogram.bucket(2000));
+		assertEquals(2, LatencyHistogram.bucket(3999));
+		assertEquals(10, LatencyHistogram.bucket(1000000));
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void percentilesAndMean() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentileMicros(50));
+		for (int i = 0; i < 99; i++) {
+			histogram.record(3000);
+		}
+		histogram.record(500000);
+		assertEquals(100, histogram.getCount());
+		assertEquals(4, histogram.getPercentileMicros(50));
+		assertEquals(4, histogram.getPercentileMicros(99));
+		assertEquals(512, histogram.getPercentileMicros(100));
+		assertEquals((99 * 3 + 500) / 100.0, histogram.getMeanMicros(), 1e-9);
+	}
+
+	@Test
+	public void batchIsRecordedAsAverage() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10000, 10);
+		assertEquals(10, histogram.getCount());
+		assertEquals(2, histogram.getPercentileMicros(50));
+		assertEquals(1.0, histogram.getMeanMicros(), 1e-9);
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi.phonemiser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class HindiLTSTest {
+	private static final String[] WORDS = { "आपका", "बचपन", "प्रियतम", "आमंत्रण", "कतई", "हूँ", "लड़का", "लड़कियाँ",
+			"स्वतंत्रता", "प्रधानमंत्री", "विश्वविद्यालय", "दुःख", "संस्कृति", "हिंदी", "ज़िंदगी", "क्षेत्र" };
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 200;
+
+	private static HindiLTS lts;
+
+	@BeforeClass
+	public static void loadLTS() throws IOException {
+		lts = new HindiLTS(HindiLTS.class.getResourceAsStream("/marytts/language/hi/lexicon/UTF8toIT3.hi.list"));
+	}
+
+	@Test
+	public void phonemisesSampleWords() throws IOException {
+		assertEquals("' aa - p k aa", lts.phonemise("आपका"));
+		assertEquals("' b a - ch p a n", lts.phonemise("बचपन"));
+		assertEquals("' h uu n", lts.phonemise("हूँ"));
+	}
+
+	private static List<String[]> readGolden() throws IOException {
+		BufferedReader golden = new BufferedReader(new InputStreamReader(
+				HindiLTSTest.class.getResourceAsStream("lts-golden.hi.txt"), "UTF-8"));
+		List<String[]> entries = new ArrayList<String[]>();
+		String line;
+		while ((line = golden.readLine()) != null) {
+			if (line.startsWith("#") || line.trim().equals("")) {
+				continue;
+			}
+			entries.add(line.split("\t"));
+		}
+		golden.close();
+		return entries;
+	}
+
+	@Test
+	public void matchesGoldenTranscriptions() throws IOException {
+		GoldenHarness harness = new GoldenHarness(HindiLTSTest.class.getResourceAsStream("lts-golden.hi.txt"), lts);
+		GoldenHarness.Report report = harness.run(GoldenHarness.engineFor(lts), 1);
+		assertTrue(report.toString(), report.getMismatches().isEmpty());
+		assertEquals(harness.size(), report.getWordCount());
+	}
+
+	@Test
+	public void harnessExplainsMismatches() throws IOException {
+		GoldenHarness harness = new GoldenHarness(HindiLTSTest.class.getResourceAsStream("lts-golden.hi.txt"), lts);
+		// an engine that never drops a schwa at the end of a word
+		GoldenHarness.Report report = harness.run(new GoldenHarness.Engine() {
+			public String phonemise(String word) throws IOException {
+				String result = lts.phonemise(word);
+				return result.endsWith(" aa") || result.endsWith(" a") ? result : result + " a";
+			}
+		}, 1);
+		assertTrue(report.getMismatches().size() > 0);
+		GoldenHarness.Mismatch first = report.getMismatches().get(0);
+		assertEquals(lts.phonemise(first.getWord()), first.getExpected());
+		String text = report.toString();
+		assertTrue(text, text.contains("rule 8"));
+		assertTrue(text, text.contains("words/s"));
+	}
+
+	@Test
+	public void batchMatchesSingleWordCalls() throws Exception {
+		List<String> words = new ArrayList<String>();
+		List<String> expected = new ArrayList<String>();
+		for (String[] parts : readGolden()) {
+			words.add(parts[0]);
+			expected.add(parts[1]);
+		}
+		// repeated words and lines of several words
+		for (String word : WORDS) {
+			words.add(word);
+			expected.add(lts.phonemise(word));
+			words.add(word + " " + word);
+			expected.add(lts.phonemise(word + " " + word));
+		}
+		assertEquals(expected, lts.phonemise(words));
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			assertEquals(expected, lts.phonemise(words, pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void stemCacheMatchesFullWords() throws IOException {
+		HindiLTS stemmed = new HindiLTS(HindiLTS.class.getResourceAsStream("/marytts/language/hi/lexicon/UTF8toIT3.hi.list"));
+		stemmed.useStemCache(HindiLTS.class.getResourceAsStream("/marytts/language/hi/lexicon/suffixes.hi.txt"), 100000);
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				HindiLTS.class.getResourceAsStream("/marytts/language/hi/lexicon/suffixes.hi.txt"), "UTF-8"));
+		List<String> suffixes = new ArrayList<String>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!line.startsWith("#") && !line.trim().equals("")) {
+				suffixes.add(line.trim());
+			}
+		}
+		in.close();
+		// golden words, and each of them with every suffix, twice so
+		// that the second round is answered from the cache
+		List<String[]> golden = readGolden().subList(0, 6000);
+		List<String> mismatches = new ArrayList<String>();
+		for (int round = 0; round < 2; round++) {
+			for (String[] parts : golden) {
+				List<String> forms = new ArrayList<String>();
+				forms.add(parts[0]);
+				for (String suffix : suffixes) {
+					forms.add(parts[0] + suffix);
+				}
+				for (String form : forms) {
+					String expected = lts.phonemise(form);
+					String result = stemmed.phonemise(form);
+					if (!expected.equals(result)) {
+						mismatches.add(form + ": expected '" + expected + "' but was '" + result + "'");
+					}
+				}
+			}
+		}
+		assertEquals(new ArrayList<String>(), mismatches);
+	}
+
+	@Test
+	public void concurrentOutputMatchesSequential() throws Exception {
+		final List<String> expected = new ArrayList<String>();
+		for (String word : WORDS) {
+			expected.add(lts.phonemise(word));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+			for (int t = 0; t < THREADS; t++) {
+				final int offset = t;
+				futures.add(pool.submit(new Callable<List<String>>() {
+					public List<String> call() throws IOException {
+						List<String> mismatches = new ArrayList<String>();
+						for (int r = 0; r < ROUNDS; r++) {
+							for (int i = 0; i < WORDS.length; i++) {
+								int k = (i + offset + r) % WORDS.length;
+								String result = lts.phonemise(WORDS[k]);
+								if (!expected.get(k).equals(result)) {
+									mismatches.add(WORDS[k] + " -> " + result);
+								}
+							}
+						}
+						return mismatches;
+					}
+				}));
+			}
+			for (Future<List<String>> f : futures) {
+				assertEquals(new ArrayList<String>(), f.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2011 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * This file is part of MARY TTS.
+ *
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package marytts.language.hi.phonemiser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+
+public class StemCacheTest {
+
+	@Test
+	public void staysBounded() {
+		StemCache cache = new StemCache(Arrays.asList("ता", "ती", "ते"), 10);
+		for (int i = 0; i < 1000; i++) {
+			// every stem leaves the rules in a state of its own
+			cache.put("stem" + i, i % 3, "head" + i, "state" + i, "tail" + i);
+		}
+		assertEquals(10, cache.size());
+		assertTrue(cache.stateCount() <= cache.size());
+		assertNull(cache.get("stem999", 999 % 3));
+	}
+
+	@Test
+	public void cachedStemsTakeNewSuffixes() {
+		StemCache cache = new StemCache(Arrays.asList("ता", "ती", "ते"), 1);
+		cache.put("stem0", 0, "head0 ", "state0", "tail0");
+		cache.put("stem1", 0, "head1 ", "state1", "tail1");
+		cache.put("stem0", 1, "head0 ", "state0", "tail0b");
+		assertEquals("head0 tail0", cache.get("stem0", 0));
+		assertEquals("head0 tail0b", cache.get("stem0", 1));
+		assertNull(cache.get("stem1", 0));
+		assertEquals(1, cache.stateCount());
+	}
+}